@@ -1,10 +1,23 @@
 package org.example;
 
-
-
+import org.example.loadtest.LoadTest;
+import org.example.loadtest.LoadTestOptions;
+import org.example.loadtest.LoadTestReport;
 
 public class Main {
-    public static void main(String[] args) {}
-}
-
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        if (options.isCompare()) {
+            LoadTestReport platform = new LoadTest(options.withVirtualThreads(false)).run();
+            platform.print(System.out);
+            LoadTestReport virtual = new LoadTest(options.withVirtualThreads(true)).run();
+            virtual.print(System.out);
+            LoadTestReport.printComparison(System.out, platform, virtual);
+        } else {
+            new LoadTest(options).run().print(System.out);
+        }
 
+        // SimpleDb 의 스케줄러 쓰레드가 남아 있으므로 명시적으로 종료한다.
+        System.exit(0);
+    }
+}
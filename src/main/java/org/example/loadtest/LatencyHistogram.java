@@ -0,0 +1,72 @@
+package org.example.loadtest;
+
+/**
+ * 나노초 지연 시간을 로그-선형 버킷에 모으는 히스토그램. (상대 오차 1% 미만)
+ * 쓰레드마다 하나씩 쓰고, 끝난 뒤 merge 로 합친다.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_COUNT = 128;
+    private static final int HALF = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + 56 * HALF;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long maxValue;
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)]++;
+        totalCount++;
+        maxValue = Math.max(maxValue, value);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    // percentile 은 0 ~ 100
+    public long valueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - 6; // value >> shift 는 [64, 127]
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF + (int) ((value >> shift) - HALF);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF + 1;
+        long mantissa = (index - SUB_BUCKET_COUNT) % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
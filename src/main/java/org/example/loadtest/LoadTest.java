@@ -0,0 +1,231 @@
+package org.example.loadtest;
+
+import org.example.simpledb.H2Dialect;
+import org.example.simpledb.MySqlDialect;
+import org.example.simpledb.SimpleDb;
+import org.example.simpledb.SimpleDbConfig;
+import org.example.simpledb.Sql;
+import org.example.simpledb.article.Article;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SimpleDb 에 insert / selectRow / selectRows / 트랜잭션을 섞어서 부하를 주고 지연 시간을 잰다.
+ * 시작할 때 article 테이블을 다시 만들고 seedRows 만큼 채우므로 테스트용 DB 에만 돌린다.
+ */
+public class LoadTest {
+
+    private static final int SELECT_ROWS_LIMIT = 20;
+
+    private static final List<String> SEED_COLUMNS = List.of("createdDate", "modifiedDate", "title", "body", "isBlind");
+
+    private final LoadTestOptions options;
+    private final SimpleDb simpleDb;
+    private final Operation[] schedule;
+
+    public LoadTest(LoadTestOptions options) {
+        this(options, new SimpleDb(SimpleDbConfig.builder()
+                .dialect(options.isEmbedded() ? new H2Dialect() : new MySqlDialect())
+                .host(options.getHost())
+                .username(options.isEmbedded() ? "sa" : options.getUsername())
+                .password(options.isEmbedded() ? "" : options.getPassword())
+                .dbName(options.getDbName())
+                .profile(options.getProfile())
+                .virtualThreads(options.isVirtualThreads())
+                .build()));
+    }
+
+    public LoadTest(LoadTestOptions options, SimpleDb simpleDb) {
+        this.options = options;
+        this.simpleDb = simpleDb;
+        this.schedule = buildSchedule(options.getMix());
+    }
+
+    // 비율만큼 작업을 펼쳐 두고 무작위 인덱스로 고른다.
+    private static Operation[] buildSchedule(Map<Operation, Integer> mix) {
+        List<Operation> schedule = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                schedule.add(operation);
+            }
+        });
+        return schedule.toArray(new Operation[0]);
+    }
+
+    public LoadTestReport run() throws InterruptedException, SQLException {
+        prepare();
+
+        long warmupEndNanos = System.nanoTime() + options.getWarmup().toNanos();
+        long endNanos = warmupEndNanos + options.getDuration().toNanos();
+
+        ExecutorService executor = newExecutor();
+        List<Future<WorkerResult>> futures = new ArrayList<>();
+        for (int i = 0; i < options.getThreads(); i++) {
+            futures.add(executor.submit(() -> work(warmupEndNanos, endNanos)));
+        }
+
+        String label = options.getThreads() + (options.isVirtualThreads() ? " virtual threads" : " platform threads")
+                + (options.isEmbedded() ? ", embedded H2" : "");
+        LoadTestReport report = new LoadTestReport(label, options.getDuration());
+        for (Future<WorkerResult> future : futures) {
+            try {
+                report.merge(future.get());
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+            }
+        }
+        executor.shutdown();
+        return report;
+    }
+
+    private void prepare() throws SQLException {
+        simpleDb.generateDDL(Article.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(options.getSeedRows());
+        for (int no = 1; no <= options.getSeedRows(); no++) {
+            rows.add(new Object[]{now, now, "제목%d".formatted(no), "내용%d".formatted(no), false});
+        }
+        simpleDb.bulkInsert("article", SEED_COLUMNS, rows);
+    }
+
+    private ExecutorService newExecutor() {
+        if (!options.isVirtualThreads()) {
+            return Executors.newFixedThreadPool(options.getThreads());
+        }
+        // 빌드 대상이 Java 17 이라 가상 쓰레드 API 는 리플렉션으로 찾는다.
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("가상 쓰레드는 Java 21 이상에서 실행해야 합니다.", e);
+        }
+    }
+
+    private WorkerResult work(long warmupEndNanos, long endNanos) {
+        WorkerResult result = new WorkerResult();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (true) {
+            long startNanos = System.nanoTime();
+            if (startNanos >= endNanos) {
+                break;
+            }
+            Operation operation = schedule[random.nextInt(schedule.length)];
+
+            boolean succeeded;
+            try {
+                succeeded = execute(operation, random);
+            } catch (Exception e) {
+                succeeded = false;
+            }
+
+            // 워밍업 구간은 기록하지 않는다.
+            if (startNanos >= warmupEndNanos) {
+                if (succeeded) {
+                    result.histogram(operation).record(System.nanoTime() - startNanos);
+                } else {
+                    result.recordError(operation);
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean execute(Operation operation, ThreadLocalRandom random) throws SQLException {
+        switch (operation) {
+            case INSERT:
+                return insert() > 0;
+            case SELECT_ROW: {
+                Sql sql = simpleDb.genSql();
+                sql.append("SELECT * FROM article WHERE id = ?", randomId(random));
+                sql.selectRow();
+                return true;
+            }
+            case SELECT_ROWS: {
+                Sql sql = simpleDb.genSql();
+                sql.append("SELECT * FROM article")
+                        .append("WHERE id > ?", randomId(random))
+                        .append("ORDER BY id ASC LIMIT " + SELECT_ROWS_LIMIT);
+                sql.selectRows(Article.class);
+                return true;
+            }
+            case TRANSACTION:
+                return transaction();
+            default:
+                throw new IllegalStateException("처리하지 않은 작업입니다: " + operation);
+        }
+    }
+
+    private long randomId(ThreadLocalRandom random) {
+        return random.nextLong(1, Math.max(2, options.getSeedRows() + 1));
+    }
+
+    private long insert() throws SQLException {
+        Sql sql = simpleDb.genSql();
+        sql.append("INSERT INTO article")
+                .append("SET createdDate = NOW()")
+                .append(", modifiedDate = NOW()")
+                .append(", title = ?", "제목 load")
+                .append(", body = ?", "내용 load");
+        return sql.insert();
+    }
+
+    private boolean transaction() throws SQLException {
+        Connection conn = simpleDb.getConnection();
+        try {
+            simpleDb.startTransaction(conn);
+
+            long insertedId = insert();
+
+            Sql updateSql = simpleDb.genSql();
+            updateSql.append("UPDATE article SET title = ? WHERE id = ?", "제목 수정", insertedId);
+            updateSql.update();
+
+            simpleDb.commitTransaction(conn);
+            return insertedId > 0;
+        } catch (SQLException e) {
+            simpleDb.rollbackTransaction(conn);
+            throw e;
+        } finally {
+            simpleDb.endTransaction(conn);
+            simpleDb.releaseConnection(conn);
+        }
+    }
+
+    static class WorkerResult {
+
+        private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+        private final long[] errors = new long[Operation.values().length];
+
+        WorkerResult() {
+            for (Operation operation : Operation.values()) {
+                histograms.put(operation, new LatencyHistogram());
+            }
+        }
+
+        LatencyHistogram histogram(Operation operation) {
+            return histograms.get(operation);
+        }
+
+        void recordError(Operation operation) {
+            errors[operation.ordinal()]++;
+        }
+
+        long errorCount(Operation operation) {
+            return errors[operation.ordinal()];
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.loadtest;
+
+import org.example.simpledb.SimpleDbConfig;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 부하 테스트 실행 옵션. 명령행 인자 "--key value" 형식으로 받는다.
+ * <pre>
+ * --threads 16 --virtual --duration 30s --warmup 5s --rows 1000
+ * --compare  (같은 옵션으로 플랫폼 쓰레드와 가상 쓰레드를 차례로 돌려 처리량을 비교한다)
+ * --mix insert=1,selectRow=6,selectRows=2,tx=1
+ * --host localhost --user wave --password 0913 --db simpleDb__test
+ * --embedded  (MySQL 대신 같은 JVM 안의 H2 인메모리 DB 에 부하를 준다)
+ * --profile oltp  (SimpleDbConfig 프로필: oltp, bulk-load, analytics)
+ * </pre>
+ */
+public class LoadTestOptions {
+
+    private String host = "localhost";
+    private String username = "wave";
+    private String password = "0913";
+    private String dbName = "simpleDb__test";
+    private boolean embedded;
+    private SimpleDbConfig.Profile profile;
+
+    private int threads = 8;
+    private boolean virtualThreads;
+    private boolean compare;
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration warmup = Duration.ofSeconds(5);
+    private int seedRows = 1000;
+    private Map<Operation, Integer> mix = defaultMix();
+
+    private static Map<Operation, Integer> defaultMix() {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        mix.put(Operation.INSERT, 1);
+        mix.put(Operation.SELECT_ROW, 6);
+        mix.put(Operation.SELECT_ROWS, 2);
+        mix.put(Operation.TRANSACTION, 1);
+        return mix;
+    }
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--virtual" -> options.virtualThreads = true;
+                case "--compare" -> options.compare = true;
+                case "--embedded" -> options.embedded = true;
+                case "--profile" -> options.profile = SimpleDbConfig.Profile.of(args[++i]);
+                case "--threads" -> options.threads = Integer.parseInt(args[++i]);
+                case "--duration" -> options.duration = parseDuration(args[++i]);
+                case "--warmup" -> options.warmup = parseDuration(args[++i]);
+                case "--rows" -> options.seedRows = Integer.parseInt(args[++i]);
+                case "--mix" -> options.mix = parseMix(args[++i]);
+                case "--host" -> options.host = args[++i];
+                case "--user" -> options.username = args[++i];
+                case "--password" -> options.password = args[++i];
+                case "--db" -> options.dbName = args[++i];
+                default -> throw new IllegalArgumentException("알 수 없는 옵션입니다: " + arg);
+            }
+        }
+        if (options.threads < 1) {
+            throw new IllegalArgumentException("--threads 는 1 이상이어야 합니다.");
+        }
+        return options;
+    }
+
+    // 쓰레드 종류만 바꾼 복사본
+    public LoadTestOptions withVirtualThreads(boolean virtualThreads) {
+        LoadTestOptions copy = new LoadTestOptions();
+        copy.host = host;
+        copy.username = username;
+        copy.password = password;
+        copy.dbName = dbName;
+        copy.embedded = embedded;
+        copy.profile = profile;
+        copy.threads = threads;
+        copy.virtualThreads = virtualThreads;
+        copy.duration = duration;
+        copy.warmup = warmup;
+        copy.seedRows = seedRows;
+        copy.mix = mix;
+        return copy;
+    }
+
+    // 30s, 500ms, 2m 형식
+    static Duration parseDuration(String text) {
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        return switch (text.charAt(text.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("시간 형식이 잘못되었습니다: " + text);
+        };
+    }
+
+    static Map<Operation, Integer> parseMix(String text) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : text.split(",")) {
+            String[] pair = part.split("=");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("비율은 0 이상이어야 합니다: " + part);
+            }
+            mix.put(Operation.ofKey(pair[0].trim()), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("--mix 에 실행할 작업이 없습니다.");
+        }
+        return mix;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    public boolean isEmbedded() {
+        return embedded;
+    }
+
+    public SimpleDbConfig.Profile getProfile() {
+        return profile;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public boolean isCompare() {
+        return compare;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public int getSeedRows() {
+        return seedRows;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+}
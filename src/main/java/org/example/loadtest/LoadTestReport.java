@@ -0,0 +1,99 @@
+package org.example.loadtest;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 작업별 처리량과 지연 시간 백분위 결과.
+ */
+public class LoadTestReport {
+
+    private final String label;
+    private final Duration duration;
+    private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+    LoadTestReport(String label, Duration duration) {
+        this.label = label;
+        this.duration = duration;
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new LatencyHistogram());
+            errors.put(operation, 0L);
+        }
+    }
+
+    void merge(LoadTest.WorkerResult result) {
+        for (Operation operation : Operation.values()) {
+            histograms.get(operation).merge(result.histogram(operation));
+            errors.merge(operation, result.errorCount(operation), Long::sum);
+        }
+    }
+
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms.get(operation);
+    }
+
+    public long getTotalCount() {
+        return histograms.values().stream().mapToLong(LatencyHistogram::getTotalCount).sum();
+    }
+
+    public double getThroughput() {
+        return getTotalCount() / (duration.toNanos() / 1_000_000_000.0);
+    }
+
+    public void print(PrintStream out) {
+        out.println("== 부하 테스트 결과 (" + label + ", " + duration.toSeconds() + "초) ==");
+        out.printf("%-11s %10s %10s %9s %9s %9s %9s %8s%n",
+                "작업", "건수", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "오류");
+
+        LatencyHistogram total = new LatencyHistogram();
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = histograms.get(operation);
+            if (histogram.getTotalCount() == 0 && errors.get(operation) == 0) {
+                continue;
+            }
+            printLine(out, operation.getKey(), histogram, errors.get(operation));
+            total.merge(histogram);
+            totalErrors += errors.get(operation);
+        }
+        printLine(out, "total", total, totalErrors);
+    }
+
+    private void printLine(PrintStream out, String name, LatencyHistogram histogram, long errorCount) {
+        double seconds = duration.toNanos() / 1_000_000_000.0;
+        out.printf("%-11s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %8d%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds,
+                millis(histogram.valueAtPercentile(50)),
+                millis(histogram.valueAtPercentile(99)),
+                millis(histogram.valueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()),
+                errorCount);
+    }
+
+    // 같은 부하를 플랫폼 쓰레드와 가상 쓰레드로 돌린 결과를 나란히 놓는다.
+    public static void printComparison(PrintStream out, LoadTestReport platform, LoadTestReport virtual) {
+        out.println("== 플랫폼 쓰레드 vs 가상 쓰레드 ==");
+        out.printf("%-11s %10s %10s %9s%n", "", "ops/s", "p99(ms)", "오류");
+        printSummary(out, "platform", platform);
+        printSummary(out, "virtual", virtual);
+        if (platform.getThroughput() > 0) {
+            out.printf("처리량 비율 (virtual / platform): %.2f배%n", virtual.getThroughput() / platform.getThroughput());
+        }
+    }
+
+    private static void printSummary(PrintStream out, String name, LoadTestReport report) {
+        LatencyHistogram total = new LatencyHistogram();
+        report.histograms.values().forEach(total::merge);
+        long errorCount = report.errors.values().stream().mapToLong(Long::longValue).sum();
+        out.printf("%-11s %10.1f %10.2f %9d%n", name, report.getThroughput(), millis(total.valueAtPercentile(99)), errorCount);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
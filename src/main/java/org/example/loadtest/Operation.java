@@ -0,0 +1,30 @@
+package org.example.loadtest;
+
+/**
+ * 부하 테스트에서 섞어 실행하는 작업 종류.
+ */
+public enum Operation {
+    INSERT("insert"),
+    SELECT_ROW("selectRow"),
+    SELECT_ROWS("selectRows"),
+    TRANSACTION("tx");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static Operation ofKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("알 수 없는 작업입니다: " + key);
+    }
+}
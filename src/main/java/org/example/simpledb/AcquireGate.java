@@ -0,0 +1,85 @@
+package org.example.simpledb;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 가상 쓰레드가 풀 락에 한꺼번에 몰리지 않게 풀 앞에서 줄을 세우는 게이트.
+ * <p>
+ * 레인마다 풀 크기만큼의 허가를 따로 둔다. 허가 하나를 모든 레인이 나눠 쓰면, INTERACTIVE 예약분 때문에
+ * 풀 안에서 기다리는 BATCH 쓰레드가 허가를 쥐고 있어서 예약분을 바로 가져갈 수 있는 INTERACTIVE 쓰레드가 게이트에서 막힌다.
+ * <p>
+ * 공정한 세마포어라 같은 레인에서는 먼저 온 쓰레드가 먼저 풀에 들어간다. 쓰레드를 carrier 에 고정(pin)하지 않고 기다린다.
+ */
+class AcquireGate {
+
+    private final Map<ConnectionLane, LanePermits> permits = new EnumMap<>(ConnectionLane.class);
+
+    AcquireGate(int permits) {
+        for (ConnectionLane lane : ConnectionLane.values()) {
+            this.permits.put(lane, new LanePermits(permits));
+        }
+    }
+
+    // timeoutNanos 가 음수면 끝까지 기다린다. 시간 안에 못 받으면 null
+    Connection acquire(ConnectionPool pool, ConnectionLane lane, long timeoutNanos) throws InterruptedException, SQLException {
+        LanePermits gate = permits.get(lane);
+        long startNanos = System.nanoTime();
+        if (timeoutNanos < 0) {
+            gate.acquire();
+        } else if (!gate.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            return null;
+        }
+        // 허가를 받은 쓰레드는 레인마다 풀 크기만큼이다. 레인 몫 때문에 풀에서 기다리더라도 다른 레인의 허가는 쥐고 있지 않다.
+        Connection connection = null;
+        try {
+            connection = pool.poll(lane, timeoutNanos < 0 ? -1 : Math.max(0, timeoutNanos - (System.nanoTime() - startNanos)));
+            return connection;
+        } finally {
+            if (connection == null) {
+                gate.release();
+            }
+        }
+    }
+
+    // 풀이 받아 준 반납만 빌려 간 레인의 허가를 돌려준다. 두 번 반납해도 허가가 늘지 않는다.
+    void release(ConnectionPool pool, Connection conn) {
+        ConnectionLane lane = pool.release(conn);
+        if (lane != null) {
+            permits.get(lane).release();
+        }
+    }
+
+    // 풀 크기를 따라간다. 줄일 때는 지금 빌려 간 허가가 반납되면서 맞춰진다.
+    void resize(int delta) {
+        for (LanePermits gate : permits.values()) {
+            if (delta > 0) {
+                gate.release(delta);
+            } else if (delta < 0) {
+                gate.reducePermits(-delta);
+            }
+        }
+    }
+
+    // 레인이 지금 바로 가져갈 수 있는 허가 수. 테스트에서 쓴다.
+    int availablePermits(ConnectionLane lane) {
+        return permits.get(lane).availablePermits();
+    }
+
+    // reducePermits 가 protected 라 열어 둔다.
+    private static final class LanePermits extends Semaphore {
+
+        LanePermits(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        public void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.simpledb;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * id 하나씩 조회하던 것을 모아서 IN 쿼리 한 번으로 읽는다. (N+1 방지)
+ * <pre>
+ * BatchLoader&lt;Article&gt; articles = simpleDb.batchLoader(Article.class, "SELECT * FROM article WHERE id IN (?)", "id", Duration.ofMillis(2));
+ * CompletableFuture&lt;Article&gt; first = articles.load(1L);
+ * CompletableFuture&lt;Article&gt; second = articles.load(2L);
+ * articles.dispatch(); // 요청 범위가 끝날 때. window 가 있으면 그 시간이 지나도 알아서 보낸다.
+ * </pre>
+ * sql 의 ? 자리는 Sql.appendIn 으로 모은 id 목록이 된다. 결과는 keyColumn 값으로 id 에 맞춰 돌려주고,
+ * 없는 id 는 null 로 끝난다. 같은 배치 안의 같은 id 는 한 번만 조회한다.
+ * 모은 id 가 dialect 의 IN 목록 한도에 닿으면 window 를 기다리지 않고 바로 보낸다.
+ * <p>
+ * clazz 가 Row 면 Row 로, 아니면 엔티티로 읽는다. 정수 id 는 타입(Integer, Long 등)과 상관없이 같은 값이면 같은 id 로 본다.
+ */
+public class BatchLoader<T> {
+
+    private final SimpleDb simpleDb;
+    private final Class<T> clazz;
+    private final String sql;
+    private final String keyColumn;
+    private final Duration window; // null 이면 dispatch 를 부르거나 배치가 찰 때만 보낸다
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final Field keyField; // 엔티티일 때 keyColumn 필드
+
+    private final Object lock = new Object();
+    private Map<Object, CompletableFuture<T>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduled;
+
+    BatchLoader(SimpleDb simpleDb, Class<T> clazz, String sql, String keyColumn, Duration window, Executor executor, int maxBatchSize) {
+        this.simpleDb = simpleDb;
+        this.clazz = clazz;
+        this.sql = sql;
+        this.keyColumn = keyColumn;
+        this.window = window;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.keyField = clazz == Row.class ? null : keyField(clazz, keyColumn);
+    }
+
+    private static Field keyField(Class<?> clazz, String keyColumn) {
+        try {
+            Field field = clazz.getDeclaredField(keyColumn);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("키 필드가 없습니다: " + clazz.getName() + "." + keyColumn, e);
+        }
+    }
+
+    public CompletableFuture<T> load(Object id) {
+        Object key = normalize(id);
+        Map<Object, CompletableFuture<T>> full = null;
+        CompletableFuture<T> future;
+        synchronized (lock) {
+            future = pending.get(key);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            } else if (pending.size() == 1 && window != null) {
+                scheduled = simpleDb.schedule(() -> executor.execute(this::dispatchPending), window);
+            }
+        }
+        if (full != null) {
+            Map<Object, CompletableFuture<T>> batch = full;
+            executor.execute(() -> run(batch));
+        }
+        return future;
+    }
+
+    // 결과는 ids 순서대로 담긴다.
+    public CompletableFuture<List<T>> loadMany(Collection<?> ids) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            futures.add(load(id));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<T> rows = new ArrayList<>(futures.size());
+                    for (CompletableFuture<T> future : futures) {
+                        rows.add(future.join());
+                    }
+                    return rows;
+                });
+    }
+
+    // 모아 둔 id 를 지금 조회한다. 호출한 쓰레드에서 실행하므로, 돌아오면 그때까지 받은 future 는 모두 끝나 있다.
+    public void dispatch() {
+        dispatchPending();
+    }
+
+    private void dispatchPending() {
+        Map<Object, CompletableFuture<T>> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        run(batch);
+    }
+
+    private Map<Object, CompletableFuture<T>> takePending() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        Map<Object, CompletableFuture<T>> batch = pending;
+        pending = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void run(Map<Object, CompletableFuture<T>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Object, T> found = new HashMap<>();
+            for (T row : query(batch.keySet())) {
+                found.put(normalize(keyOf(row)), row);
+            }
+            batch.forEach((key, future) -> future.complete(found.get(key)));
+        } catch (SQLException | RuntimeException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    // 조회 실패를 없는 id(null)로 끝내지 않도록 예외를 삼키지 않는 query* 로 읽는다. 실패하면 배치의 future 가 모두 예외로 끝난다.
+    @SuppressWarnings("unchecked")
+    private List<T> query(Collection<Object> ids) throws SQLException {
+        Sql batchSql = simpleDb.genSql().appendIn(sql, ids);
+        if (clazz == Row.class) {
+            return (List<T>) simpleDb.queryRowsAsRows(batchSql.getSql(), batchSql.getParameters());
+        }
+        return simpleDb.queryRows(clazz, batchSql.getSql(), batchSql.getParameters(), false);
+    }
+
+    private Object keyOf(T row) {
+        if (keyField == null) {
+            return ((Row) row).get(keyColumn);
+        }
+        try {
+            return keyField.get(row);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // DB 드라이버가 돌려주는 정수 타입과 호출자가 넘긴 타입이 달라도 같은 id 로 찾도록 long 으로 맞춘다.
+    static Object normalize(Object id) {
+        if (id instanceof Integer || id instanceof Long || id instanceof Short || id instanceof Byte) {
+            return ((Number) id).longValue();
+        }
+        if (id instanceof BigInteger value && value.bitLength() < Long.SIZE) {
+            return value.longValue();
+        }
+        if (id instanceof BigDecimal value && value.stripTrailingZeros().scale() <= 0 && value.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0) {
+            return value.longValue();
+        }
+        return id;
+    }
+}
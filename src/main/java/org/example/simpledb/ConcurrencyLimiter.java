@@ -0,0 +1,119 @@
+package org.example.simpledb;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 관측한 쿼리 지연 시간으로 동시 실행 한도를 조절하는 limiter. (gradient 방식)
+ * <p>
+ * 장기 평균 지연(longRtt) 대비 최근 지연(shortRtt)이 늘어나면 한도를 줄이고,
+ * 지연이 안정적이면 sqrt(limit) 만큼 여유를 두며 늘린다.
+ * 한도를 넘는 요청은 풀 앞에서 줄 세우지 않고 바로 거절한다.
+ * <p>
+ * onSample 은 모든 쿼리 뒤에 불리므로 락을 잡지 않는다. 다른 쓰레드가 값을 고치는 중이면 그 샘플은 버린다.
+ * 지연 평균은 표본 일부만으로도 충분히 따라가고, 부하가 클수록 버리는 비율이 올라가 자연히 표본 추출이 된다.
+ */
+public class ConcurrencyLimiter {
+
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+    private static final double LONG_RTT_WEIGHT = 1.0 / 600;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder shedCount = new LongAdder();
+
+    private volatile double limit;
+
+    private final AtomicBoolean sampling = new AtomicBoolean();
+    private final LongAdder skippedSamples = new LongAdder();
+
+    // 아래 값은 sampling 을 잡은 쓰레드만 바꾼다.
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("1 <= minLimit <= initialLimit <= maxLimit 이어야 합니다.");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                shedCount.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void onSample(long rttNanos) {
+        if (!sampling.compareAndSet(false, true)) {
+            skippedSamples.increment();
+            return;
+        }
+        try {
+            update(rttNanos);
+        } finally {
+            sampling.set(false);
+        }
+    }
+
+    private void update(long rttNanos) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_RTT_WEIGHT;
+        longRttNanos += (rttNanos - longRttNanos) * LONG_RTT_WEIGHT;
+
+        // 최근 지연이 기준선보다 크게 줄었으면 기준선도 빨리 따라 내려오게 한다.
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, longRttNanos / shortRttNanos));
+        double newLimit = current * gradient + Math.sqrt(current);
+        newLimit = current * (1 - SMOOTHING) + newLimit * SMOOTHING;
+
+        // 한도의 절반도 쓰지 않고 있으면 한도를 늘릴 근거가 없다. 줄이는 것은 언제든 한다.
+        if (newLimit > current && inFlight.get() < current / 2) {
+            return;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getShedCount() {
+        return shedCount.sum();
+    }
+
+    // 다른 쓰레드가 값을 고치는 중이라 버린 샘플 수
+    public long getSkippedSamples() {
+        return skippedSamples.sum();
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.simpledb;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 여러 풀이 나눠 쓰는 전체 커넥션 한도.
+ * <p>
+ * 풀은 커넥션을 새로 열기 전에 자리를 잡고, 닫은 뒤 돌려준다. 자리가 없어 기다리게 된 풀은 줄을 서고,
+ * 자리가 나면 실제로 기다리는 쓰레드가 있는 풀부터 깨운다. 한 풀은 줄에 한 번만 선다.
+ * release 는 어떤 풀의 락도 잡지 않은 상태에서 불러야 한다. (다른 풀을 깨우면서 그 풀의 락을 잡는다)
+ */
+class ConnectionBudget {
+
+    private final int max;
+    private final AtomicInteger used = new AtomicInteger();
+    private final Queue<ConnectionPool> starved = new ConcurrentLinkedQueue<>();
+    private final Set<ConnectionPool> queued = ConcurrentHashMap.newKeySet(); // starved 에 들어 있는 풀
+    private final Runnable onExhausted;
+
+    // onExhausted: 자리가 없을 때 부른다. 놀고 있는 커넥션을 다른 쓰레드에서 회수하는 데 쓴다.
+    ConnectionBudget(int max, Runnable onExhausted) {
+        if (max < 1) {
+            throw new IllegalArgumentException("전체 커넥션 한도는 1 이상이어야 합니다: " + max);
+        }
+        this.max = max;
+        this.onExhausted = onExhausted;
+    }
+
+    boolean tryReserve(ConnectionPool pool) {
+        if (tryIncrement()) {
+            return true;
+        }
+        if (queued.add(pool)) {
+            starved.add(pool);
+        }
+        // 줄을 서는 사이에 자리가 났으면 release 가 이 풀을 못 봤을 수 있다.
+        if (tryIncrement()) {
+            return true;
+        }
+        onExhausted.run();
+        return false;
+    }
+
+    void release() {
+        used.decrementAndGet();
+        ConnectionPool pool;
+        while ((pool = starved.poll()) != null) {
+            // 깨우기 전에 빼 두어야 다시 자리를 못 잡은 풀이 줄을 다시 설 수 있다.
+            queued.remove(pool);
+            if (pool.onBudgetAvailable()) {
+                return;
+            }
+        }
+    }
+
+    int getUsed() {
+        return used.get();
+    }
+
+    int getMax() {
+        return max;
+    }
+
+    boolean hasStarved() {
+        return !starved.isEmpty();
+    }
+
+    int starvedCount() {
+        return starved.size();
+    }
+
+    private boolean tryIncrement() {
+        while (true) {
+            int current = used.get();
+            if (current >= max) {
+                return false;
+            }
+            if (used.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.simpledb;
+
+/**
+ * 커넥션 획득 우선순위. 선언 순서가 곧 우선순위다. (앞쪽이 높음)
+ */
+public enum ConnectionLane {
+    INTERACTIVE,
+    BATCH
+}
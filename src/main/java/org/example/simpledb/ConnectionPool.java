@@ -0,0 +1,492 @@
+package org.example.simpledb;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 레인(ConnectionLane)별 예약 몫과 우선순위를 지키는 커넥션 풀.
+ * <p>
+ * 레인마다 풀의 일정 비율을 예약할 수 있고, 다른 레인은 그 예약분을 건드리지 못한다.
+ * 반납된 커넥션은 가져갈 수 있는 가장 높은 우선순위 레인의 대기자에게 먼저 넘어가고,
+ * 같은 레인 안에서는 먼저 기다린 순서대로 받는다.
+ * <p>
+ * opener 를 넘기면 빈 채로 시작해서 필요할 때 capacity 까지 커넥션을 연다. 열기 전에 전체 한도(ConnectionBudget)에서
+ * 자리를 잡고, 자리가 없으면 커넥션이 반납되거나 다른 풀이 자리를 내줄 때까지 기다린다.
+ * 오래 논 커넥션은 evictIdle 로 빼서 닫는다. (반납은 스택이라 가장 오래 논 커넥션이 맨 아래에 있다)
+ * <p>
+ * resize 로 capacity 를 바꿀 수 있다. 줄이면 남는 커넥션은 놀고 있는 것부터 닫고, 빌려 간 것은 반납될 때 닫는다.
+ */
+class ConnectionPool {
+
+    private static final ConnectionLane[] LANES = ConnectionLane.values();
+
+    // 전체 한도 때문에 기다리는 쓰레드가 자리를 다시 잡아 보는 간격. (깨우는 신호를 놓친 경우 대비)
+    private static final long STARVED_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Map<ConnectionLane, Condition> conditions = new EnumMap<>(ConnectionLane.class);
+
+    private final Deque<Connection> idle = new ArrayDeque<>();
+    private final Map<Connection, Long> idleSinceNanos = new IdentityHashMap<>();
+    private final Map<Connection, ConnectionLane> borrowed = new IdentityHashMap<>();
+
+    private final int[] inUse = new int[LANES.length];
+    private final int[] waiters = new int[LANES.length];
+    private final double[] reservedShares = new double[LANES.length];
+    private final int[] reserved = new int[LANES.length];
+
+    private int capacity;
+
+    private final SqlWork<Connection> opener; // null 이면 처음 받은 커넥션만 쓰는 고정 크기 풀
+    private final ConnectionBudget budget;
+
+    private int opened; // 열려 있거나 여는 중인 커넥션 수
+    private boolean starved; // 전체 한도가 차서 새로 열 수 없는 상태
+    private boolean closed;
+
+    // sampleDemand 이후 구간의 수요. PoolAutoScaler 가 읽는다.
+    private long intervalAcquires;
+    private long intervalWaitNanos;
+    private int intervalPeakWaiters;
+    private int intervalPeakInUse;
+
+    ConnectionPool(Collection<Connection> connections) {
+        this(connections, null);
+    }
+
+    // 받은 커넥션으로 시작하고, resize 로 늘리면 opener 로 더 연다.
+    ConnectionPool(Collection<Connection> connections, SqlWork<Connection> opener) {
+        this(connections.size(), opener, null);
+        this.idle.addAll(connections);
+        this.opened = connections.size();
+        long now = System.nanoTime();
+        for (Connection conn : connections) {
+            idleSinceNanos.put(conn, now);
+        }
+    }
+
+    ConnectionPool(int capacity, SqlWork<Connection> opener, ConnectionBudget budget) {
+        this.capacity = capacity;
+        this.opener = opener;
+        this.budget = budget;
+        for (ConnectionLane lane : LANES) {
+            conditions.put(lane, lock.newCondition());
+        }
+    }
+
+    void setReservedShare(ConnectionLane lane, double share) {
+        if (share < 0 || share > 1) {
+            throw new IllegalArgumentException("예약 비율은 0 ~ 1 사이여야 합니다: " + share);
+        }
+        lock.lock();
+        try {
+            double total = share;
+            for (ConnectionLane other : LANES) {
+                if (other != lane) {
+                    total += reservedShares[other.ordinal()];
+                }
+            }
+            if (total > 1) {
+                throw new IllegalArgumentException("레인 예약 비율의 합이 1 을 넘습니다: " + total);
+            }
+            reservedShares[lane.ordinal()] = share;
+            updateReserved();
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Connection take(ConnectionLane lane) throws InterruptedException, SQLException {
+        return poll(lane, -1);
+    }
+
+    // timeoutNanos 가 음수면 무한히 기다린다. 시간 안에 못 가져오면 null.
+    Connection poll(ConnectionLane lane, long timeoutNanos) throws InterruptedException, SQLException {
+        int index = lane.ordinal();
+        lock.lockInterruptibly();
+        try {
+            // 같은 레인에 먼저 온 대기자가 있으면 새치기하지 않는다.
+            if (waiters[index] == 0 && canAcquire(lane)) {
+                Connection conn = acquire(lane);
+                if (conn != null) {
+                    intervalAcquires++;
+                    return conn;
+                }
+            }
+
+            long waitStartNanos = System.nanoTime();
+            waiters[index]++;
+            intervalPeakWaiters = Math.max(intervalPeakWaiters, totalWaiters());
+            try {
+                long remaining = timeoutNanos;
+                while (true) {
+                    Condition condition = conditions.get(lane);
+                    if (timeoutNanos >= 0 && remaining <= 0) {
+                        return null;
+                    } else if (starved) {
+                        long slice = timeoutNanos < 0 ? STARVED_RETRY_NANOS : Math.min(remaining, STARVED_RETRY_NANOS);
+                        long left = condition.awaitNanos(slice);
+                        remaining -= slice - Math.max(left, 0);
+                        starved = false; // 전체 한도에서 자리를 다시 잡아 본다.
+                    } else if (timeoutNanos < 0) {
+                        condition.await();
+                    } else {
+                        remaining = condition.awaitNanos(remaining);
+                    }
+                    if (canAcquire(lane)) {
+                        Connection conn = acquire(lane);
+                        if (conn != null) {
+                            return conn;
+                        }
+                    }
+                    signalNext(); // 받은 신호를 가져갈 수 있는 다른 대기자에게 넘긴다.
+                }
+            } finally {
+                // 시간이 다 되어 못 받은 경우도 대기로 센다.
+                intervalAcquires++;
+                intervalWaitNanos += System.nanoTime() - waitStartNanos;
+                waiters[index]--;
+                signalNext();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 빌려 간 커넥션이면 받고 true. 이미 반납됐거나 이 풀에서 빌린 게 아니면 false
+    boolean offer(Connection conn) {
+        return release(conn) != null;
+    }
+
+    // offer 와 같고, 받았으면 빌려 갈 때의 레인을 돌려준다. 받지 않았으면 null
+    ConnectionLane release(Connection conn) {
+        ConnectionLane lane;
+        lock.lock();
+        try {
+            lane = borrowed.remove(conn);
+            if (lane == null) {
+                return null; // 이미 반납된 커넥션 (타임아웃 회수 후 다시 반납하는 경우)
+            }
+            inUse[lane.ordinal()]--;
+            if (!closed && opened <= capacity) {
+                idle.push(conn);
+                idleSinceNanos.put(conn, System.nanoTime());
+                signalNext();
+                return lane;
+            }
+            opened--;
+        } finally {
+            lock.unlock();
+        }
+        // 닫힌 풀이나 줄어든 풀에 돌아온 커넥션은 락 밖에서 닫는다.
+        discard(List.of(conn));
+        return lane;
+    }
+
+    // idleNanos 이상 논 커넥션을 최대 max 개까지 오래된 순서로 빼서 닫는다. 뺀 개수를 돌려준다.
+    int evictIdle(long idleNanos, int max) {
+        List<Connection> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            while (evicted.size() < max && !idle.isEmpty() && now - idleSinceNanos.get(idle.peekLast()) >= idleNanos) {
+                Connection conn = idle.pollLast();
+                idleSinceNanos.remove(conn);
+                opened--;
+                evicted.add(conn);
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(evicted);
+        return evicted.size();
+    }
+
+    // 늘리면 기다리던 쓰레드가 바로 새 커넥션을 열고, 줄이면 넘치는 만큼 놀고 있는 커넥션부터 닫는다.
+    void resize(int newCapacity) {
+        if (newCapacity < 1) {
+            throw new IllegalArgumentException("capacity 는 1 이상이어야 합니다: " + newCapacity);
+        }
+        if (opener == null) {
+            throw new IllegalStateException("커넥션을 열 수 없는 풀은 크기를 바꿀 수 없습니다.");
+        }
+        List<Connection> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            capacity = newCapacity;
+            updateReserved();
+            while (opened > capacity && !idle.isEmpty()) {
+                Connection conn = idle.pollLast();
+                idleSinceNanos.remove(conn);
+                opened--;
+                evicted.add(conn);
+            }
+            signalNext();
+        } finally {
+            lock.unlock();
+        }
+        discard(evicted);
+    }
+
+    // 지난 호출 이후 구간의 수요를 돌려주고 구간을 새로 시작한다.
+    Demand sampleDemand() {
+        lock.lock();
+        try {
+            int inUseNow = totalInUse();
+            Demand demand = new Demand(capacity, opened, intervalAcquires, intervalWaitNanos,
+                    intervalPeakWaiters, Math.max(intervalPeakInUse, inUseNow));
+            intervalAcquires = 0;
+            intervalWaitNanos = 0;
+            intervalPeakWaiters = totalWaiters();
+            intervalPeakInUse = inUseNow;
+            return demand;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getCapacity() {
+        lock.lock();
+        try {
+            return capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 가장 오래 논 커넥션이 논 시간. 놀고 있는 커넥션이 없으면 -1.
+    long oldestIdleNanos() {
+        lock.lock();
+        try {
+            return idle.isEmpty() ? -1 : System.nanoTime() - idleSinceNanos.get(idle.peekLast());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 놀고 있는 커넥션을 닫고, 빌려 간 커넥션은 반납될 때 닫는다.
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        evictIdle(0, Integer.MAX_VALUE);
+    }
+
+    // 전체 한도에 자리가 났다. 기다리는 쓰레드가 있었으면 true.
+    boolean onBudgetAvailable() {
+        lock.lock();
+        try {
+            starved = false;
+            for (int waiting : waiters) {
+                if (waiting > 0) {
+                    signalNext();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int idleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int openCount() {
+        lock.lock();
+        try {
+            return opened;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int waiterCount(ConnectionLane lane) {
+        lock.lock();
+        try {
+            return waiters[lane.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 놀고 있는 커넥션을 꺼내고, 없으면 새로 연다. 전체 한도가 차서 열 수 없으면 null.
+    private Connection acquire(ConnectionLane lane) throws SQLException {
+        if (!idle.isEmpty()) {
+            Connection conn = idle.pop();
+            idleSinceNanos.remove(conn);
+            borrowed.put(conn, lane);
+            inUse[lane.ordinal()]++;
+            intervalPeakInUse = Math.max(intervalPeakInUse, totalInUse());
+            return conn;
+        }
+        if (budget != null && !budget.tryReserve(this)) {
+            starved = true;
+            return null;
+        }
+        // 자리를 먼저 잡아 두고, 여는 동안은 락을 놓아 다른 쓰레드가 풀을 쓸 수 있게 한다.
+        opened++;
+        inUse[lane.ordinal()]++;
+        intervalPeakInUse = Math.max(intervalPeakInUse, totalInUse());
+        lock.unlock();
+        Connection conn;
+        try {
+            conn = opener.run();
+        } catch (SQLException | RuntimeException e) {
+            if (budget != null) {
+                budget.release();
+            }
+            lock.lock();
+            opened--;
+            inUse[lane.ordinal()]--;
+            signalNext();
+            throw e;
+        }
+        lock.lock();
+        borrowed.put(conn, lane);
+        return conn;
+    }
+
+    // 락 밖에서 부른다.
+    private void discard(List<Connection> connections) {
+        for (Connection conn : connections) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            if (budget != null) {
+                budget.release();
+            }
+        }
+    }
+
+    // 지금 가져갈 수 있는 커넥션 수. 놀고 있는 것과, 더 열 수 있는 것을 합친다.
+    private int free() {
+        int openable = opener == null || starved || closed ? 0 : Math.max(0, capacity - opened);
+        return idle.size() + openable;
+    }
+
+    private void updateReserved() {
+        for (ConnectionLane lane : LANES) {
+            reserved[lane.ordinal()] = (int) Math.floor(capacity * reservedShares[lane.ordinal()]);
+        }
+    }
+
+    private int totalInUse() {
+        int total = 0;
+        for (int count : inUse) {
+            total += count;
+        }
+        return total;
+    }
+
+    private int totalWaiters() {
+        int total = 0;
+        for (int count : waiters) {
+            total += count;
+        }
+        return total;
+    }
+
+    // 다른 레인의 예약분 중 아직 채워지지 않은 만큼은 남겨 두어야 한다.
+    private boolean available(ConnectionLane lane) {
+        int held = 0;
+        for (ConnectionLane other : LANES) {
+            if (other != lane) {
+                held += Math.max(0, reserved[other.ordinal()] - inUse[other.ordinal()]);
+            }
+        }
+        return free() > held;
+    }
+
+    // 실제로 가져갈 수 있는 더 높은 우선순위 대기자가 있으면 양보한다.
+    private boolean canAcquire(ConnectionLane lane) {
+        if (!available(lane)) {
+            return false;
+        }
+        for (int i = 0; i < lane.ordinal(); i++) {
+            if (waiters[i] > 0 && available(LANES[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void signalNext() {
+        for (ConnectionLane lane : LANES) {
+            if (waiters[lane.ordinal()] > 0 && available(lane)) {
+                conditions.get(lane).signal();
+                return;
+            }
+        }
+    }
+
+    /**
+     * sampleDemand 한 구간 동안의 수요.
+     */
+    static final class Demand {
+
+        private final int capacity;
+        private final int opened;
+        private final long acquires;
+        private final long waitNanos;
+        private final int peakWaiters;
+        private final int peakInUse;
+
+        Demand(int capacity, int opened, long acquires, long waitNanos, int peakWaiters, int peakInUse) {
+            this.capacity = capacity;
+            this.opened = opened;
+            this.acquires = acquires;
+            this.waitNanos = waitNanos;
+            this.peakWaiters = peakWaiters;
+            this.peakInUse = peakInUse;
+        }
+
+        int getCapacity() {
+            return capacity;
+        }
+
+        int getOpened() {
+            return opened;
+        }
+
+        long getAcquires() {
+            return acquires;
+        }
+
+        // 커넥션 요청 하나당 평균 대기 시간. 기다리지 않고 받은 요청은 0 으로, 못 받고 끝난 요청은 기다린 만큼 센다.
+        long meanWaitNanos() {
+            return acquires == 0 ? 0 : waitNanos / acquires;
+        }
+
+        int getPeakWaiters() {
+            return peakWaiters;
+        }
+
+        int getPeakInUse() {
+            return peakInUse;
+        }
+    }
+}
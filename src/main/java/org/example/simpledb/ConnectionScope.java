@@ -0,0 +1,96 @@
+package org.example.simpledb;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 쓰레드에 묶인 커넥션 하나와, 그 커넥션을 지금 몇 겹으로 쓰고 있는지.
+ * <p>
+ * getConnection 은 이미 묶인 커넥션이 있으면 한 겹 더 들어가고, releaseConnection 은 한 겹 나온다.
+ * 가장 바깥이 나올 때만 풀에 돌려주므로, 트랜잭션을 연 쪽이 들고 있는 동안
+ * 그 안에서 실행한 쿼리가 커넥션을 먼저 반납하지 않는다.
+ * <p>
+ * 쓰레드에는 범위 안에서만 걸어 두고 나올 때 지운다. 짧게 살다 사라지는 가상 쓰레드에
+ * 초기값 객체가 쓰레드마다 남지 않는다.
+ */
+final class ConnectionScope {
+
+    private final Connection connection;
+    private final ConcurrencyLimiter limiter; // 받은 허가를 돌려줄 곳. null 이면 없음
+
+    private final AtomicInteger depth = new AtomicInteger(1);
+
+    // 커넥션을 기다린 시간. 범위 안에서 처음 실행하는 쿼리에 한 번만 붙는다.
+    private long waitNanos;
+
+    // 오래 반납되지 않아 풀이 회수했다. 주인 쓰레드는 다음에 새 커넥션을 받는다.
+    private volatile boolean expired;
+
+    // startTransaction ~ endTransaction 사이. 주인 쓰레드만 바꾼다.
+    private boolean transactional;
+
+    // 커밋한 뒤에 다른 쓰레드에 알릴 일(존재 필터 갱신). 롤백하면 버린다.
+    private final List<Runnable> afterCommit = new ArrayList<>();
+
+    ConnectionScope(Connection connection, ConcurrencyLimiter limiter, long waitNanos) {
+        this.connection = connection;
+        this.limiter = limiter;
+        this.waitNanos = waitNanos;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    void enter() {
+        depth.incrementAndGet();
+    }
+
+    // 남은 겹 수. 0 이면 풀에 돌려줄 차례다.
+    int exit() {
+        return depth.decrementAndGet();
+    }
+
+    long takeWaitNanos() {
+        long nanos = waitNanos;
+        waitNanos = 0;
+        return nanos;
+    }
+
+    void expire() {
+        expired = true;
+    }
+
+    boolean isExpired() {
+        return expired;
+    }
+
+    void setTransactional(boolean transactional) {
+        this.transactional = transactional;
+        afterCommit.clear();
+    }
+
+    boolean isTransactional() {
+        return transactional;
+    }
+
+    void afterCommit(Runnable task) {
+        afterCommit.add(task);
+    }
+
+    void committed() {
+        List<Runnable> tasks = new ArrayList<>(afterCommit);
+        afterCommit.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    void rolledBack() {
+        afterCommit.clear();
+    }
+}
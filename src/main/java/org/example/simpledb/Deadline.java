@@ -0,0 +1,67 @@
+package org.example.simpledb;
+
+import java.time.Duration;
+
+/**
+ * 요청 하나에 주어진 남은 시간 예산. 같은 범위 안의 모든 쿼리가 예산을 나눠 쓴다.
+ */
+public final class Deadline {
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    // 더 빨리 끝나는 쪽을 따른다. 바깥 예산보다 안쪽 예산이 길어질 수는 없다.
+    Deadline min(Deadline other) {
+        if (other == null) {
+            return this;
+        }
+        return expiresAtNanos - other.expiresAtNanos <= 0 ? this : other;
+    }
+
+    public long remainingNanos() {
+        return expiresAtNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    long expiresAtNanos() {
+        return expiresAtNanos;
+    }
+
+    /**
+     * 쓰레드에 걸어 둔 Deadline 을 close 시점에 이전 값으로 되돌린다.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        static final Scope NONE = new Scope(null, null);
+
+        private final ThreadLocal<Deadline> holder;
+        private final Deadline previous;
+
+        Scope(ThreadLocal<Deadline> holder, Deadline previous) {
+            this.holder = holder;
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (holder == null) {
+                return;
+            }
+            if (previous == null) {
+                holder.remove();
+            } else {
+                holder.set(previous);
+            }
+        }
+    }
+}
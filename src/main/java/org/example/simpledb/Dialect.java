@@ -0,0 +1,70 @@
+package org.example.simpledb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 데이터베이스마다 다른 부분을 모아 둔 곳.
+ * {@link Column#type()} 은 MySQL 기준으로 적고, 다른 DB 는 {@link #columnType(String)} 에서 바꿔 준다.
+ */
+public interface Dialect {
+
+    // MySQL prepared statement 프로토콜의 파라미터 개수 한도
+    int DEFAULT_MAX_PARAMETERS = 65_535;
+
+    String url(String host, String dbName);
+
+    // 설정을 드라이버 접속 속성으로 옮긴다. 드라이버가 모르는 속성은 넣지 않는다.
+    default Properties driverProperties(SimpleDbConfig config) {
+        return new Properties();
+    }
+
+    default String columnType(String declaredType) {
+        return declaredType;
+    }
+
+    default PreparedStatement prepareReturningKeys(Connection conn, String sql) throws SQLException {
+        return conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    // 쿼리 하나의 IN (...) 에 넣을 값의 최대 개수. 넘으면 나눠서 실행한다.
+    default int maxInListSize() {
+        return 1_000;
+    }
+
+    default int maxParameters() {
+        return DEFAULT_MAX_PARAMETERS;
+    }
+
+    // 결과를 한 번에 메모리에 올리지 않고 조금씩 읽기 위한 fetch size
+    int streamingFetchSize();
+
+    // 쿼리 모양별로 고른 fetch size 를 드라이버에 맞게 바꾼다. -1 이면 statement 를 건드리지 않는다.
+    default int adaptiveFetchSize(int advised, SimpleDbConfig config) {
+        return advised;
+    }
+
+    // INSERT INTO table (a, b) VALUES (?, ?), (?, ?) ...
+    default String multiRowInsertSql(String table, List<String> columns, int rowCount) {
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < columns.size(); i++) {
+            row.append(i == 0 ? "?" : ", ?");
+        }
+        row.append(")");
+
+        StringBuilder sql = new StringBuilder("INSERT INTO ")
+                .append(table)
+                .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+}
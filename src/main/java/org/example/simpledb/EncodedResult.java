@@ -0,0 +1,144 @@
+package org.example.simpledb;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * RowCodec 으로 인코딩한 행들을 버퍼 묶음(chunk)에 담아 두고 읽는 결과.
+ * 어떤 버퍼에 담을지(힙 밖 메모리, 임시 파일 매핑)는 하위 클래스가 정한다.
+ * <p>
+ * 값은 타입별 접근자로 버퍼에서 바로 읽고, 객체가 필요할 때만 {@link #getRow(int)} 로 만든다.
+ * 다 읽은 뒤에는 여러 쓰레드에서 동시에 읽어도 된다.
+ */
+public abstract class EncodedResult implements AutoCloseable {
+
+    final RowCodec codec;
+    final List<ByteBuffer> chunks = new ArrayList<>();
+
+    // 상위 32비트는 청크 번호, 하위 32비트는 청크 안의 위치
+    private long[] addresses = new long[1024];
+    private int size;
+
+    private volatile boolean closed;
+
+    EncodedResult(RowLayout layout) {
+        this.codec = new RowCodec(layout);
+    }
+
+    void addAddress(int chunkIndex, int offset) {
+        if (size == addresses.length) {
+            addresses = Arrays.copyOf(addresses, size * 2);
+        }
+        addresses[size++] = ((long) chunkIndex << 32) | offset;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Row.Columns getColumns() {
+        return codec.getLayout().getColumns();
+    }
+
+    public int column(String name) {
+        int index = getColumns().indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("없는 컬럼입니다: " + name);
+        }
+        return index;
+    }
+
+    public boolean isNull(int row, int column) {
+        return codec.isNull(chunk(row), offset(row), column);
+    }
+
+    // JDBC 처럼 NULL 이면 0 / false 를 돌려준다. 구분이 필요하면 isNull 을 쓴다.
+    public long getLong(int row, int column) {
+        return codec.getLong(chunk(row), offset(row), column);
+    }
+
+    public double getDouble(int row, int column) {
+        return codec.getDouble(chunk(row), offset(row), column);
+    }
+
+    public boolean getBoolean(int row, int column) {
+        return codec.getBoolean(chunk(row), offset(row), column);
+    }
+
+    public String getString(int row, int column) {
+        return codec.getString(chunk(row), offset(row), column);
+    }
+
+    public BigDecimal getBigDecimal(int row, int column) {
+        return codec.getBigDecimal(chunk(row), offset(row), column);
+    }
+
+    public LocalDateTime getLocalDateTime(int row, int column) {
+        return codec.getLocalDateTime(chunk(row), offset(row), column);
+    }
+
+    public LocalDate getLocalDate(int row, int column) {
+        return codec.getLocalDate(chunk(row), offset(row), column);
+    }
+
+    public LocalTime getLocalTime(int row, int column) {
+        return codec.getLocalTime(chunk(row), offset(row), column);
+    }
+
+    public byte[] getBytes(int row, int column) {
+        return codec.getBytes(chunk(row), offset(row), column);
+    }
+
+    public Object getObject(int row, int column) {
+        return codec.getObject(chunk(row), offset(row), column);
+    }
+
+    public Row getRow(int row) {
+        return codec.getRow(chunk(row), offset(row));
+    }
+
+    // 처음부터 다시 읽을 때마다 새 Stream 을 만든다. 행 객체는 소비하는 순간에만 만들어진다.
+    public Stream<Row> rows() {
+        return IntStream.range(0, size).mapToObj(this::getRow);
+    }
+
+    private ByteBuffer chunk(int row) {
+        if (closed) {
+            throw new IllegalStateException("이미 닫힌 결과입니다.");
+        }
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("행 번호가 범위를 벗어났습니다: " + row);
+        }
+        return chunks.get((int) (addresses[row] >>> 32));
+    }
+
+    private int offset(int row) {
+        return (int) addresses[row];
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        chunks.clear();
+        release();
+    }
+
+    // 버퍼 외에 붙잡고 있는 자원(임시 파일 등)을 정리한다.
+    void release() {
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.simpledb;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * 결과 집합의 컬럼을 엔티티 필드에 채운다.
+ * 컬럼 → 필드 매핑은 결과 집합당 한 번만 찾는다.
+ */
+class EntityMapper<T> {
+
+    private final Constructor<T> constructor;
+    private final Field[] fields;
+
+    EntityMapper(Class<T> clazz, ResultSetMetaData metaData) throws SQLException, ReflectiveOperationException {
+        this.constructor = clazz.getDeclaredConstructor();
+        this.constructor.setAccessible(true);
+
+        int columnCount = metaData.getColumnCount();
+        this.fields = new Field[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            Field field = clazz.getDeclaredField(metaData.getColumnName(i + 1));
+            field.setAccessible(true);
+            fields[i] = field;
+        }
+    }
+
+    T map(ResultSet rs) throws SQLException, ReflectiveOperationException {
+        T instance = constructor.newInstance();
+        for (int i = 0; i < fields.length; i++) {
+            fields[i].set(instance, rs.getObject(i + 1));
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,223 @@
+package org.example.simpledb;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * save / update 에 쓰는 엔티티 정보. 클래스마다 한 번만 만든다.
+ * 테이블 이름과 컬럼은 generateDDL 과 같은 규칙(클래스 이름 소문자, @Column 필드 이름)을 따른다.
+ * <p>
+ * 바뀐 컬럼 조합을 비트 마스크로 나타내고, 조합마다 만든 SQL 을 캐시한다.
+ * @Version 필드는 변경 감지 대상이 아니고, SQL 에 늘 따로 붙는다.
+ */
+final class EntityMeta {
+
+    private static final ClassValue<EntityMeta> CACHE = new ClassValue<>() {
+        @Override
+        protected EntityMeta computeValue(Class<?> type) {
+            return new EntityMeta(type);
+        }
+    };
+
+    private static final String ID = "id";
+
+    private final String table;
+    private final Field id;
+    private final Field version; // 없으면 null
+    private final Field[] columns;
+
+    private final Map<Long, String> updateSqls = new ConcurrentHashMap<>();
+    private final Map<Long, String> insertSqls = new ConcurrentHashMap<>();
+
+    private EntityMeta(Class<?> clazz) {
+        this.table = clazz.getSimpleName().toLowerCase();
+
+        Field id = null;
+        Field version = null;
+        List<Field> columns = new ArrayList<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            if (field.getAnnotation(Column.class) == null) {
+                continue;
+            }
+            field.setAccessible(true);
+            if (field.getName().equals(ID)) {
+                id = field;
+            } else if (field.getAnnotation(Version.class) != null) {
+                if (version != null) {
+                    throw new IllegalArgumentException("@Version 필드는 하나만 둘 수 있습니다: " + clazz.getName());
+                }
+                version = field;
+            } else {
+                columns.add(field);
+            }
+        }
+        if (columns.size() > Long.SIZE) {
+            throw new IllegalArgumentException("@Column 필드는 " + Long.SIZE + "개까지만 지원합니다: " + clazz.getName());
+        }
+        this.id = id;
+        this.version = version;
+        this.columns = columns.toArray(new Field[0]);
+    }
+
+    static EntityMeta of(Class<?> clazz) {
+        return CACHE.get(clazz);
+    }
+
+    // 스냅샷을 남길 대상인지. id 와 @Column 필드가 있어야 save 할 수 있다.
+    boolean isEntity() {
+        return id != null && columns.length > 0;
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    Object[] read(Object entity) {
+        Object[] values = new Object[columns.length];
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = columns[i].get(entity);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return values;
+    }
+
+    Object getId(Object entity) {
+        try {
+            return id.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void setId(Object entity, long value) {
+        setNumber(id, entity, value);
+    }
+
+    boolean hasVersion() {
+        return version != null;
+    }
+
+    Long getVersion(Object entity) {
+        try {
+            Object value = version.get(entity);
+            return value == null ? null : ((Number) value).longValue();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void setVersion(Object entity, long value) {
+        setNumber(version, entity, value);
+    }
+
+    private static void setNumber(Field field, Object entity, long value) {
+        try {
+            Class<?> type = field.getType();
+            if (type == Long.class || type == long.class) {
+                field.set(entity, value);
+            } else if (type == Integer.class || type == int.class) {
+                field.set(entity, Math.toIntExact(value));
+            } else {
+                throw new IllegalStateException(field.getName() + " 필드 타입을 지원하지 않습니다: " + type.getName());
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static long changedMask(Object[] snapshot, Object[] current) {
+        long mask = 0;
+        for (int i = 0; i < current.length; i++) {
+            if (!Objects.deepEquals(snapshot[i], current[i])) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    static long nonNullMask(Object[] values) {
+        long mask = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    static long allMask(int count) {
+        return count == Long.SIZE ? -1L : (1L << count) - 1;
+    }
+
+    int columnCount() {
+        return columns.length;
+    }
+
+    // mask 에 든 값만 순서대로 고른다. 뒤에 extra 를 덧붙인다. (WHERE 절 값)
+    static Object[] select(Object[] values, long mask, Object... extra) {
+        Object[] selected = new Object[Long.bitCount(mask) + extra.length];
+        int index = 0;
+        for (int i = 0; i < values.length; i++) {
+            if ((mask & (1L << i)) != 0) {
+                selected[index++] = values[i];
+            }
+        }
+        for (Object value : extra) {
+            selected[index++] = value;
+        }
+        return selected;
+    }
+
+    // UPDATE article SET title = ?, isBlind = ? WHERE id = ?
+    // @Version 이 있으면: UPDATE article SET title = ?, version = ? WHERE id = ? AND version = ?
+    String updateSql(long mask) {
+        return updateSqls.computeIfAbsent(mask, key -> {
+            StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+            boolean first = true;
+            for (int i = 0; i < columns.length; i++) {
+                if ((key & (1L << i)) != 0) {
+                    sql.append(first ? "" : ", ").append(columns[i].getName()).append(" = ?");
+                    first = false;
+                }
+            }
+            if (version != null) {
+                sql.append(first ? "" : ", ").append(version.getName()).append(" = ?");
+            }
+            sql.append(" WHERE ").append(ID).append(" = ?");
+            if (version != null) {
+                sql.append(" AND ").append(version.getName()).append(" = ?");
+            }
+            return sql.toString();
+        });
+    }
+
+    // INSERT INTO article (title, body) VALUES (?, ?)
+    // @Version 이 있으면 버전 컬럼이 마지막에 붙는다.
+    String insertSql(long mask) {
+        return insertSqls.computeIfAbsent(mask, key -> {
+            StringBuilder names = new StringBuilder();
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < columns.length; i++) {
+                if ((key & (1L << i)) != 0) {
+                    names.append(names.length() == 0 ? "" : ", ").append(columns[i].getName());
+                    placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+                }
+            }
+            if (version != null) {
+                names.append(names.length() == 0 ? "" : ", ").append(version.getName());
+                placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+            }
+            if (names.length() == 0) {
+                return "INSERT INTO " + table + " (" + ID + ") VALUES (DEFAULT)";
+            }
+            return "INSERT INTO " + table + " (" + names + ") VALUES (" + placeholders + ")";
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.simpledb;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sql.track() 으로 조회한 엔티티의 @Column 값 스냅샷. save 할 때 바뀐 필드만 고르는 데 쓴다.
+ * <p>
+ * 엔티티는 @Data 라 값이 바뀌면 hashCode 도 바뀌므로 객체 동일성으로 찾는다.
+ * 엔티티를 약하게 참조하므로, 더 이상 쓰지 않는 엔티티의 스냅샷은 GC 뒤에 함께 지워진다.
+ */
+final class EntitySnapshots {
+
+    private final Map<IdentityKey, Object[]> snapshots = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+    void put(Object entity, Object[] values) {
+        expunge();
+        snapshots.put(new IdentityKey(entity, queue), values);
+    }
+
+    Object[] get(Object entity) {
+        return snapshots.get(new IdentityKey(entity, null));
+    }
+
+    int size() {
+        expunge();
+        return snapshots.size();
+    }
+
+    private void expunge() {
+        Reference<?> reference;
+        while ((reference = queue.poll()) != null) {
+            snapshots.remove(reference);
+        }
+    }
+
+    private static final class IdentityKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        IdentityKey(Object entity, ReferenceQueue<Object> queue) {
+            super(entity, queue);
+            this.hash = System.identityHashCode(entity);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        // 참조가 끊긴 키는 자기 자신과만 같다. (expunge 에서 지울 수 있도록)
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof IdentityKey)) {
+                return false;
+            }
+            Object entity = get();
+            return entity != null && entity == ((IdentityKey) other).get();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package org.example.simpledb;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 테이블에 없는 키를 DB 에 묻지 않고 걸러내는 음성 캐시.
+ * <pre>
+ * ExistenceFilter articles = simpleDb.existenceFilter("article", "id");
+ * Row article = articles.findRow(id); // 확실히 없는 id 면 쿼리 없이 null
+ * </pre>
+ * <ul>
+ *     <li>만들 때 키를 모두 읽어 블룸 필터를 채운다. 블룸 필터에 없다고 나오면 확실히 없는 키다.</li>
+ *     <li>블룸 필터는 있다고 했지만 조회해 보니 없던 키(오탐, 지운 행)는 크기가 정해진 miss 캐시에 남긴다.</li>
+ *     <li>insert() 로 생긴 키(생성된 id)는 바로 더하고 miss 캐시에서 지운다. 그래서 keyColumn 은 자동 증가 id 여야 한다.
+ *     트랜잭션 안의 쓰기는 커밋할 때 반영하고, 롤백하면 버린다.</li>
+ *     <li>DELETE 는 반영하지 않아도 된다. 지운 키는 "있을 수도 있음"으로 남아 한 번 조회한 뒤 miss 캐시에 들어간다.</li>
+ *     <li>어떤 키가 생겼는지 모르는 쓰기(bulkInsert, run 이나 update 로 보낸 INSERT)가 있으면 다시 만들 때까지 모든 키를 "있을 수도 있음"으로 본다.
+ *     다시 만드는 일은 공용 ForkJoinPool 에서 한다. 키가 처음 크기의 두 배를 넘어도 다시 만든다.</li>
+ * </ul>
+ */
+public class ExistenceFilter {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long MIN_EXPECTED_KEYS = 1024;
+    static final int MISS_CACHE_SIZE = 10_000;
+
+    private final SimpleDb simpleDb;
+    private final String table;
+    private final String keyColumn;
+
+    private final Object lock = new Object();
+    private volatile Bloom bloom;
+    private final List<Object> insertedWhileRebuilding = new ArrayList<>(); // lock 안에서만
+    private boolean rebuilding; // lock 안에서만
+
+    private final AtomicLong staleVersion = new AtomicLong();
+    private volatile boolean stale = true; // 처음 만들기 전까지는 모든 키를 "있을 수도 있음"으로 본다
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    // 키가 생기거나 알 수 없는 쓰기가 있을 때마다 는다. 조회하는 사이에 바뀌었으면 miss 로 남기지 않는다.
+    private final AtomicLong insertCount = new AtomicLong();
+
+    private final Map<Object, Boolean> misses = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+            return size() > MISS_CACHE_SIZE;
+        }
+    };
+
+    private final LongAdder skippedLookups = new LongAdder();
+
+    ExistenceFilter(SimpleDb simpleDb, String table, String keyColumn) {
+        if (!IDENTIFIER.matcher(table).matches() || !IDENTIFIER.matcher(keyColumn).matches()) {
+            throw new IllegalArgumentException("테이블/컬럼 이름이 올바르지 않습니다: " + table + "." + keyColumn);
+        }
+        this.simpleDb = simpleDb;
+        this.table = table;
+        this.keyColumn = keyColumn;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    // false 면 확실히 없는 키다.
+    public boolean mightExist(Object key) {
+        if (stale) {
+            return true;
+        }
+        Object normalized = BatchLoader.normalize(key);
+        synchronized (misses) {
+            if (misses.containsKey(normalized)) {
+                return false;
+            }
+        }
+        return bloom.mightContain(hash(normalized));
+    }
+
+    // 조회 실패를 없는 키로 기억하지 않도록 예외를 삼키지 않는 streamRows 로 읽는다.
+    // 트랜잭션 안에서는 커밋하지 않은 자기 insert 가 필터에 아직 없으므로 필터를 거치지 않고 DB 에 묻는다.
+    public Row findRow(Object key) throws SQLException {
+        boolean inTransaction = simpleDb.inTransaction();
+        if (!inTransaction && !mightExist(key)) {
+            skippedLookups.increment();
+            return null;
+        }
+        long inserts = insertCount.get();
+        Row row;
+        try (Stream<Row> rows = simpleDb.streamRows(selectSql(), new Object[]{key})) {
+            row = rows.findFirst().orElse(null);
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof SQLException failure) {
+                throw failure;
+            }
+            throw e;
+        }
+        if (row == null && !inTransaction) {
+            recordMiss(key, inserts);
+        }
+        return row;
+    }
+
+    // 조회를 시작한 뒤 insert 가 있었으면 그 키일 수 있으므로 남기지 않는다.
+    // onInsert 는 insertCount 를 올린 뒤 misses 에서 지우므로, 같은 잠금 안에서 확인하면 지운 뒤에 다시 들어가지 않는다.
+    void recordMiss(Object key, long insertsBefore) {
+        synchronized (misses) {
+            if (insertCount.get() == insertsBefore) {
+                misses.put(BatchLoader.normalize(key), Boolean.TRUE);
+            }
+        }
+    }
+
+    // 직접 조회해서 없던 키를 알려 준다. 다음부터는 DB 에 묻지 않는다.
+    public void recordMiss(Object key) {
+        synchronized (misses) {
+            misses.put(BatchLoader.normalize(key), Boolean.TRUE);
+        }
+    }
+
+    long getInsertCount() {
+        return insertCount.get();
+    }
+
+    // 쿼리 없이 null 을 돌려준 횟수
+    public long getSkippedLookupCount() {
+        return skippedLookups.sum();
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    // 키를 모두 다시 읽어 새로 만든다. 만드는 동안 insert 된 키도 빠지지 않는다.
+    public void rebuild() throws SQLException {
+        synchronized (this) {
+            long version = staleVersion.get();
+            synchronized (lock) {
+                rebuilding = true;
+                insertedWhileRebuilding.clear();
+            }
+            Bloom next;
+            try {
+                long count;
+                try (Stream<Row> rows = simpleDb.streamRows("SELECT COUNT(*) FROM " + table, new Object[0])) {
+                    count = ((Number) rows.findFirst().orElseThrow().get(0)).longValue();
+                }
+                next = new Bloom(Math.max(MIN_EXPECTED_KEYS, count * 2));
+                try (Stream<Row> keys = simpleDb.streamRows("SELECT " + keyColumn + " FROM " + table, new Object[0])) {
+                    keys.forEach(row -> next.add(hash(BatchLoader.normalize(row.get(0)))));
+                }
+            } catch (SQLException | RuntimeException e) {
+                synchronized (lock) {
+                    rebuilding = false;
+                    insertedWhileRebuilding.clear();
+                }
+                throw e;
+            }
+            synchronized (lock) {
+                for (Object key : insertedWhileRebuilding) {
+                    next.add(hash(key));
+                }
+                insertedWhileRebuilding.clear();
+                rebuilding = false;
+                bloom = next;
+            }
+            // 만드는 동안 다시 알 수 없는 쓰기가 있었으면 stale 로 남겨 둔다.
+            if (staleVersion.get() == version) {
+                stale = false;
+            }
+        }
+    }
+
+    // insert() 로 키가 생겼다. 트랜잭션 안의 insert 는 커밋할 때 불린다.
+    void onInsert(Object key) {
+        Object normalized = BatchLoader.normalize(key);
+        boolean full;
+        synchronized (lock) {
+            if (bloom != null) {
+                bloom.add(hash(normalized));
+            }
+            if (rebuilding) {
+                insertedWhileRebuilding.add(normalized);
+            }
+            full = bloom != null && bloom.isFull();
+        }
+        insertCount.incrementAndGet();
+        synchronized (misses) {
+            misses.remove(normalized);
+        }
+        if (full) {
+            markStale();
+        }
+    }
+
+    // 어떤 키가 생겼는지 모르는 쓰기가 있었다.
+    void markStale() {
+        staleVersion.incrementAndGet();
+        stale = true;
+        insertCount.incrementAndGet();
+        synchronized (misses) {
+            misses.clear();
+        }
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(() -> {
+                rebuildScheduled.set(false);
+                try {
+                    rebuild();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    private String selectSql() {
+        return "SELECT * FROM " + table + " WHERE " + keyColumn + " = ?";
+    }
+
+    static long hash(Object key) {
+        long value = key instanceof Long number ? number : key == null ? 0 : key.hashCode();
+        // splitmix64 로 고르게 섞는다.
+        value += 0x9E3779B97F4A7C15L;
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * 비트 배열 하나에 키마다 k 개의 비트를 세운다. 위치는 해시 하나를 둘로 나눠 h1 + i * h2 로 만든다.
+     * 더하기는 ExistenceFilter 의 lock 안에서만 하고, 읽기는 락 없이 한다.
+     */
+    static final class Bloom {
+
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+        private final long expectedKeys;
+        private long added;
+
+        Bloom(long expectedKeys) {
+            double bits = -expectedKeys * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2));
+            this.bitCount = Math.max(Long.SIZE, (long) Math.ceil(bits / Long.SIZE) * Long.SIZE);
+            this.words = new AtomicLongArray(Math.toIntExact(bitCount / Long.SIZE));
+            this.hashCount = Math.max(1, (int) Math.round(bitCount / (double) expectedKeys * Math.log(2)));
+            this.expectedKeys = expectedKeys;
+        }
+
+        void add(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                words.set(word, words.get(word) | (1L << bit));
+            }
+            added++;
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 처음 잡은 크기를 넘어 오탐률이 올라가기 시작했다.
+        boolean isFull() {
+            return added > expectedKeys;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.simpledb;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 쿼리 모양(fingerprint)마다 지금까지 읽은 행 수를 보고 fetch size 를 정한다.
+ * <ul>
+ *     <li>처음 보는 모양 → 정하지 않는다 (설정값 그대로)</li>
+ *     <li>작은 결과 → 0 (드라이버 기본값, 한 번에 받는다)</li>
+ *     <li>큰 결과 → 평소 행 수에 맞춘 2의 거듭제곱, 최대 {@link #MAX_FETCH_SIZE}</li>
+ * </ul>
+ * 평균만 보면 가끔 큰 결과를 내는 쿼리를 작게 잡으므로, 천천히 줄어드는 최댓값을 기준으로 삼는다.
+ */
+final class FetchSizeAdvisor {
+
+    static final int SMALL_RESULT_ROWS = 100;
+    static final int MAX_FETCH_SIZE = 4_096;
+
+    // 새 결과가 최댓값보다 작으면 이 비율만큼 최댓값을 줄인다.
+    private static final double DECAY = 0.9;
+
+    // QueryStatistics 와 같은 이유로 SQL 텍스트 캐시와 모양 개수에 상한을 둔다. 넘친 모양은 advice 없이 설정값을 쓴다.
+    private static final int MAX_CACHED_SQL = 10_000;
+    private static final int MAX_SHAPES = QueryStatistics.MAX_FINGERPRINTS;
+
+    // SELECT 가 아닌 SQL 을 캐시에 표시하는 값
+    private static final Shape NOT_A_QUERY = new Shape();
+
+    private final Map<String, Shape> bySql = new ConcurrentHashMap<>();
+    private final Map<String, Shape> byFingerprint = new ConcurrentHashMap<>();
+
+    // 행을 읽는 쿼리가 아니거나 모양이 너무 많으면 null
+    Shape shapeOf(String sql) {
+        Shape shape = bySql.get(sql);
+        if (shape == null) {
+            shape = resolve(sql);
+            if (bySql.size() < MAX_CACHED_SQL) {
+                bySql.put(sql, shape);
+            }
+        }
+        return shape == NOT_A_QUERY ? null : shape;
+    }
+
+    private Shape resolve(String sql) {
+        String fingerprint = SqlFingerprint.of(sql);
+        String head = fingerprint.toLowerCase(Locale.ROOT);
+        if (!head.startsWith("select") && !head.startsWith("with")) {
+            return NOT_A_QUERY;
+        }
+        Shape shape = byFingerprint.get(fingerprint);
+        if (shape == null) {
+            if (byFingerprint.size() >= MAX_SHAPES) {
+                return NOT_A_QUERY;
+            }
+            shape = byFingerprint.computeIfAbsent(fingerprint, key -> new Shape());
+        }
+        return shape;
+    }
+
+    int getShapeCount() {
+        return byFingerprint.size();
+    }
+
+    static final class Shape {
+
+        // 아직 결과를 본 적 없으면 -1
+        private volatile double peakRows = -1;
+
+        // 동시에 기록되면 하나가 빠질 수 있지만, 추정치라 잠그지 않는다.
+        void record(long rows) {
+            double peak = peakRows;
+            peakRows = peak < 0 ? rows : Math.max(rows, peak * DECAY);
+        }
+
+        // -1 이면 아직 정할 수 없다.
+        int fetchSize() {
+            double peak = peakRows;
+            if (peak < 0) {
+                return -1;
+            }
+            if (peak < SMALL_RESULT_ROWS) {
+                return 0;
+            }
+            // 다음 결과가 조금 더 커도 왕복이 늘지 않게 여유를 둔다.
+            long wanted = (long) Math.ceil(peak * 1.25);
+            if (wanted >= MAX_FETCH_SIZE) {
+                return MAX_FETCH_SIZE;
+            }
+            int size = Integer.highestOneBit((int) wanted);
+            return size == wanted ? size : size << 1;
+        }
+    }
+}
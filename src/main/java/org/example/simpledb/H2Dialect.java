@@ -0,0 +1,41 @@
+package org.example.simpledb;
+
+import java.util.Locale;
+
+/**
+ * 같은 JVM 안에서 도는 H2 인메모리 DB. 소켓을 거치지 않으므로 로컬 캐시나 테스트/벤치마크용으로 쓴다.
+ * MySQL 호환 모드로 열어서 INSERT ... SET, 백틱, NOW() 같은 기존 SQL 을 그대로 쓸 수 있다.
+ */
+public class H2Dialect implements Dialect {
+
+    // host 는 쓰지 않는다. 마지막 커넥션이 닫혀도 DB 가 사라지지 않게 DB_CLOSE_DELAY=-1 로 연다.
+    @Override
+    public String url(String host, String dbName) {
+        return "jdbc:h2:mem:" + dbName + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    public String columnType(String declaredType) {
+        String type = declaredType.toUpperCase(Locale.ROOT);
+        boolean autoIncrement = type.contains("AUTO_INCREMENT");
+        type = type.replace("AUTO_INCREMENT", "").trim();
+
+        if (type.startsWith("INT UNSIGNED")) {
+            type = "BIGINT"; // 부호 없는 INT 범위를 담으려면 BIGINT 가 필요하다.
+        } else if (type.equals("BIT(1)")) {
+            type = "BOOLEAN";
+        } else if (type.equals("DATETIME")) {
+            type = "TIMESTAMP";
+        } else if (type.equals("TEXT")) {
+            type = "CLOB";
+        }
+
+        return autoIncrement ? type + " GENERATED BY DEFAULT AS IDENTITY" : type;
+    }
+
+    // 인메모리라 결과를 나눠 가져와도 이득이 적다. 드라이버 기본값보다 조금 크게 잡는다.
+    @Override
+    public int streamingFetchSize() {
+        return 1_000;
+    }
+}
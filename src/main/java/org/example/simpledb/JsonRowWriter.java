@@ -0,0 +1,134 @@
+package org.example.simpledb;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * ResultSet 을 중간 객체 없이 JsonGenerator 로 바로 흘려보낸다.
+ * 컬럼 이름 토큰과 컬럼별 쓰기 방식은 결과 집합당 한 번만 계산한다.
+ */
+class JsonRowWriter {
+
+    private final SerializedString[] names;
+    private final int[] kinds;
+
+    private JsonRowWriter(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        this.names = new SerializedString[columnCount];
+        this.kinds = new int[columnCount];
+
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = new SerializedString(metaData.getColumnName(i + 1));
+            kinds[i] = RowLayout.kindOf(metaData.getColumnType(i + 1), metaData.isSigned(i + 1));
+        }
+    }
+
+    static long write(ResultSet rs, JsonGenerator generator) throws SQLException, IOException {
+        JsonRowWriter writer = new JsonRowWriter(rs.getMetaData());
+        long rowCount = 0;
+
+        generator.writeStartArray();
+        while (rs.next()) {
+            writer.writeRow(rs, generator);
+            rowCount++;
+        }
+        generator.writeEndArray();
+
+        return rowCount;
+    }
+
+    private void writeRow(ResultSet rs, JsonGenerator generator) throws SQLException, IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < names.length; i++) {
+            int columnIndex = i + 1;
+            generator.writeFieldName(names[i]);
+
+            switch (kinds[i]) {
+                case RowLayout.LONG: {
+                    long value = rs.getLong(columnIndex);
+                    if (rs.wasNull()) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(value);
+                    }
+                    break;
+                }
+                case RowLayout.DOUBLE: {
+                    double value = rs.getDouble(columnIndex);
+                    if (rs.wasNull()) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(value);
+                    }
+                    break;
+                }
+                case RowLayout.DECIMAL: {
+                    BigDecimal value = rs.getBigDecimal(columnIndex);
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeNumber(value);
+                    }
+                    break;
+                }
+                case RowLayout.BOOLEAN: {
+                    boolean value = rs.getBoolean(columnIndex);
+                    if (rs.wasNull()) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeBoolean(value);
+                    }
+                    break;
+                }
+                case RowLayout.STRING:
+                    generator.writeString(rs.getString(columnIndex));
+                    break;
+                case RowLayout.DATETIME: {
+                    Timestamp value = rs.getTimestamp(columnIndex);
+                    writeStringOrNull(generator, value == null ? null : value.toLocalDateTime());
+                    break;
+                }
+                case RowLayout.DATE: {
+                    Date value = rs.getDate(columnIndex);
+                    writeStringOrNull(generator, value == null ? null : value.toLocalDate());
+                    break;
+                }
+                case RowLayout.TIME: {
+                    Time value = rs.getTime(columnIndex);
+                    writeStringOrNull(generator, value == null ? null : value.toLocalTime());
+                    break;
+                }
+                case RowLayout.BINARY: {
+                    byte[] value = rs.getBytes(columnIndex);
+                    if (value == null) {
+                        generator.writeNull();
+                    } else {
+                        generator.writeBinary(value);
+                    }
+                    break;
+                }
+                default:
+                    writeStringOrNull(generator, rs.getObject(columnIndex));
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeStringOrNull(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            // LocalDateTime 등은 jsr310 모듈의 기본 출력과 같은 ISO-8601 문자열로 쓴다.
+            generator.writeString(value.toString());
+        }
+    }
+}
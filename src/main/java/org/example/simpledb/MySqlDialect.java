@@ -0,0 +1,39 @@
+package org.example.simpledb;
+
+import java.util.Properties;
+
+public class MySqlDialect implements Dialect {
+
+    @Override
+    public String url(String host, String dbName) {
+        return "jdbc:mysql://" + host + ":3306/" + dbName;
+    }
+
+    @Override
+    public Properties driverProperties(SimpleDbConfig config) {
+        Properties properties = new Properties();
+        properties.setProperty("useServerPrepStmts", String.valueOf(config.isServerPreparedStatements()));
+        properties.setProperty("cachePrepStmts", String.valueOf(config.isStatementCache()));
+        if (config.isStatementCache()) {
+            properties.setProperty("prepStmtCacheSize", String.valueOf(config.getStatementCacheSize()));
+            properties.setProperty("prepStmtCacheSqlLimit", String.valueOf(config.getStatementCacheSqlLimit()));
+        }
+        properties.setProperty("rewriteBatchedStatements", String.valueOf(config.isRewriteBatchedStatements()));
+        properties.setProperty("useCursorFetch", String.valueOf(config.isCursorFetch()));
+        properties.setProperty("useCompression", String.valueOf(config.isCompression()));
+        return properties;
+    }
+
+    // MySQL 드라이버는 Integer.MIN_VALUE 일 때만 행 단위로 스트리밍한다.
+    @Override
+    public int streamingFetchSize() {
+        return Integer.MIN_VALUE;
+    }
+
+    // 커서 fetch 가 꺼져 있으면 fetch size 는 무시되고, 행 단위 스트리밍은 결과를 다 읽을 때까지 커넥션을 붙잡는다.
+    // 그래서 useCursorFetch 로 연 커넥션에서만 크기를 바꾼다. 작은 결과는 커서 없이 한 번에 받는다.
+    @Override
+    public int adaptiveFetchSize(int advised, SimpleDbConfig config) {
+        return config.isCursorFetch() ? advised : -1;
+    }
+}
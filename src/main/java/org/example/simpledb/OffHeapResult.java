@@ -0,0 +1,60 @@
+package org.example.simpledb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 조회 결과 전체를 힙 밖(direct ByteBuffer)에 압축된 행 배치로 담아 둔다.
+ * 힙에는 행 위치 배열 하나만 남으므로, 큰 결과를 읽어도 행/값 객체가 쌓이지 않는다.
+ * <pre>
+ * try (OffHeapResult result = simpleDb.genSql().append("SELECT * FROM article").selectOffHeap()) {
+ *     int title = result.column("title");
+ *     for (int row = 0; row < result.size(); row++) {
+ *         String value = result.getString(row, title);
+ *     }
+ * }
+ * </pre>
+ * direct 메모리는 GC 가 버퍼를 회수할 때 반납되므로, 다 쓰면 close 로 참조를 끊는다.
+ */
+public class OffHeapResult extends EncodedResult {
+
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private ByteBuffer current;
+    private long offHeapBytes;
+
+    private OffHeapResult(RowLayout layout) {
+        super(layout);
+    }
+
+    static OffHeapResult read(ResultSet rs) throws SQLException {
+        OffHeapResult result = new OffHeapResult(RowLayout.of(rs.getMetaData()));
+        while (rs.next()) {
+            result.append(result.codec.encode(rs));
+        }
+        return result;
+    }
+
+    private void append(ByteBuffer row) {
+        int length = row.remaining();
+        if (current == null || current.remaining() < length) {
+            // 청크보다 큰 행은 그 행만 담는 청크를 따로 만든다.
+            current = ByteBuffer.allocateDirect(Math.max(CHUNK_BYTES, length)).order(ByteOrder.nativeOrder());
+            chunks.add(current);
+            offHeapBytes += current.capacity();
+        }
+        addAddress(chunks.size() - 1, current.position());
+        current.put(row);
+    }
+
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    @Override
+    void release() {
+        current = null;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.simpledb;
+
+import java.sql.SQLException;
+
+/**
+ * @Version 으로 조건을 건 UPDATE 가 한 행도 바꾸지 못했을 때 던진다.
+ * 읽은 뒤 다른 쪽이 먼저 고쳤거나 지운 경우다. 다시 읽어서 재시도한다.
+ */
+public class OptimisticLockException extends SQLException {
+
+    private final Object id;
+    private final long version;
+
+    public OptimisticLockException(String table, Object id, long version) {
+        super("다른 곳에서 먼저 변경되었습니다: " + table + " id=" + id + ", version=" + version);
+        this.id = id;
+        this.version = version;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,222 @@
+package org.example.simpledb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * 정수 키 범위를 나눠 여러 커넥션에서 동시에 읽는 스캔.
+ * <pre>
+ * SELECT MIN(id), MAX(id) FROM (원래 쿼리) AS scan_source
+ * SELECT * FROM (원래 쿼리) AS scan_source WHERE id BETWEEN ? AND ?   -- 범위마다
+ * </pre>
+ * 범위마다 풀에서 BATCH 레인으로 커넥션을 따로 빌리므로, 풀이 클수록 동시에 도는 범위가 늘어난다.
+ * 호출 쓰레드의 데드라인은 범위를 실행하는 쓰레드에도 그대로 적용된다. 커넥션도 데드라인이나 connectionTimeout 안에서만 기다리므로,
+ * 호출 쓰레드가 커넥션을 쥐고 있어 풀이 비어도 끝없이 멈추지 않고 SQLTimeoutException 으로 끝난다.
+ * 범위는 모든 스캔이 같이 쓰는 ForkJoinPool 에서 돈다.
+ */
+class ParallelScan<T> {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    // 범위마다 커넥션을 하나씩 쓰므로 실제로 동시에 도는 범위 수는 커넥션 풀이 정한다.
+    // 작업자 쓰레드는 데몬이고, 한동안 쓰지 않으면 스스로 줄어든다.
+    private static final ForkJoinPool SCAN_POOL = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private final SimpleDb simpleDb;
+    private final Class<T> clazz;
+    private final String sql;
+    private final Object[] parameters;
+    private final String keyColumn;
+    private final int parallelism;
+
+    ParallelScan(SimpleDb simpleDb, Class<T> clazz, String sql, Object[] parameters, String keyColumn, int parallelism) {
+        if (!IDENTIFIER.matcher(keyColumn).matches()) {
+            throw new IllegalArgumentException("키 컬럼 이름이 올바르지 않습니다: " + keyColumn);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism 은 1 이상이어야 합니다: " + parallelism);
+        }
+        this.simpleDb = simpleDb;
+        this.clazz = clazz;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.keyColumn = keyColumn;
+        this.parallelism = parallelism;
+    }
+
+    // 범위 순서(키 순서)대로 이어 붙인 결과
+    List<T> collect() throws SQLException {
+        List<List<T>> parts = new ArrayList<>();
+        long[][] ranges = ranges();
+        for (int i = 0; i < ranges.length; i++) {
+            parts.add(null);
+        }
+        run(ranges, (index, rows) -> parts.set(index, rows));
+
+        List<T> result = new ArrayList<>();
+        for (List<T> part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    // 범위가 끝나는 대로 넘긴다. consumer 는 한 번에 하나씩만 호출된다.
+    void forEachRange(Consumer<? super List<T>> consumer) throws SQLException {
+        Object lock = new Object();
+        run(ranges(), (index, rows) -> {
+            synchronized (lock) {
+                consumer.accept(rows);
+            }
+        });
+    }
+
+    private long[][] ranges() throws SQLException {
+        String boundsSql = "SELECT MIN(" + keyColumn + "), MAX(" + keyColumn + ") FROM (" + sql + ") AS scan_source";
+        long[] bounds = query(boundsSql, parameters, rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        });
+        if (bounds == null) {
+            return new long[0][];
+        }
+        long min = bounds[0];
+        long max = bounds[1];
+
+        long step = (max - min) / parallelism + 1;
+        List<long[]> ranges = new ArrayList<>(parallelism);
+        for (long from = min; from <= max; from += step) {
+            long to = max - from < step ? max : from + step - 1;
+            ranges.add(new long[]{from, to});
+            if (to == max) {
+                break;
+            }
+        }
+        return ranges.toArray(new long[0][]);
+    }
+
+    private void run(long[][] ranges, RangeConsumer<T> consumer) throws SQLException {
+        if (ranges.length == 0) {
+            return;
+        }
+        Deadline deadline = simpleDb.currentDeadline();
+        // 범위 안에서도 키 순서를 지켜야 범위를 이어 붙인 결과가 키 순서가 된다.
+        String rangeSql = "SELECT * FROM (" + sql + ") AS scan_source WHERE " + keyColumn + " BETWEEN ? AND ? ORDER BY " + keyColumn;
+
+        try {
+            SCAN_POOL.invoke(new RangeTask(ranges, 0, ranges.length, rangeSql, deadline, consumer));
+        } catch (ScanException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<T> scan(String rangeSql, long from, long to) throws SQLException {
+        Object[] rangeParameters = Arrays.copyOf(parameters, parameters.length + 2);
+        rangeParameters[parameters.length] = from;
+        rangeParameters[parameters.length + 1] = to;
+
+        return query(rangeSql, rangeParameters, rs -> {
+            List<T> rows = new ArrayList<>();
+            try {
+                EntityMapper<T> mapper = new EntityMapper<>(clazz, rs.getMetaData());
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new SQLException("엔티티로 변환하지 못했습니다: " + clazz.getName(), e);
+            }
+            return rows;
+        });
+    }
+
+    // 쓰레드에 묶인 커넥션과 상관없이 풀에서 따로 빌려 실행한다. 범위를 실행하는 쓰레드에는 run() 의 데드라인이 걸려 있다.
+    private <R> R query(String querySql, Object[] queryParameters, ResultReader<R> reader) throws SQLException {
+        Connection conn;
+        try {
+            conn = simpleDb.takeFromPool(ConnectionLane.BATCH, simpleDb.currentDeadline());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("커넥션을 기다리는 중 인터럽트되었습니다.", e);
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(querySql)) {
+            for (int i = 0; i < queryParameters.length; i++) {
+                pstmt.setObject(i + 1, queryParameters[i]);
+            }
+            return simpleDb.execute(pstmt, querySql, queryParameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    R result = reader.read(rs);
+                    if (result instanceof List) {
+                        context.read(((List<?>) result).size());
+                    }
+                    return result;
+                }
+            });
+        } finally {
+            simpleDb.returnToPool(conn);
+        }
+    }
+
+    private interface ResultReader<R> {
+        R read(ResultSet rs) throws SQLException;
+    }
+
+    private interface RangeConsumer<T> {
+        void accept(int index, List<T> rows);
+    }
+
+    // 범위를 반씩 나눠 fork 하고, 범위 하나가 남으면 직접 읽는다.
+    private class RangeTask extends RecursiveAction {
+
+        private final long[][] ranges;
+        private final int from;
+        private final int to;
+        private final String rangeSql;
+        private final Deadline deadline;
+        private final RangeConsumer<T> consumer;
+
+        RangeTask(long[][] ranges, int from, int to, String rangeSql, Deadline deadline, RangeConsumer<T> consumer) {
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+            this.rangeSql = rangeSql;
+            this.deadline = deadline;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(ranges, from, middle, rangeSql, deadline, consumer),
+                        new RangeTask(ranges, middle, to, rangeSql, deadline, consumer));
+                return;
+            }
+            try (Deadline.Scope ignored = simpleDb.bindDeadline(deadline)) {
+                consumer.accept(from, scan(rangeSql, ranges[from][0], ranges[from][1]));
+            } catch (SQLException e) {
+                throw new ScanException(e);
+            }
+        }
+    }
+
+    private static class ScanException extends RuntimeException {
+
+        ScanException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.simpledb;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 커넥션 풀 수요를 보고 풀 크기를 min ~ max 안에서 바꾼다.
+ * <pre>
+ * simpleDb.setPoolAutoScaler(new PoolAutoScaler(2, 32));
+ * </pre>
+ * 1초마다 구간 수요를 본다.
+ * <ul>
+ *     <li>평균 대기 시간이나 대기열 길이가 기준을 넘는 구간이 연달아 {@value #GROW_SAMPLES}번 → 1.5배로 늘린다.</li>
+ *     <li>대기 없이 사용량이 크기의 절반 이하인 구간이 shrinkAfter 동안 이어짐 → 1/4 만큼 줄인다.</li>
+ * </ul>
+ * 늘리는 기준(대기 발생)과 줄이는 기준(절반 이하 사용) 사이를 비워 두고, 크기를 바꾸면 연속 횟수를 처음부터 다시 세서
+ * 경계 근처에서 크기가 오르내리지 않게 한다.
+ */
+public class PoolAutoScaler {
+
+    public static final Duration DEFAULT_WAIT_THRESHOLD = Duration.ofMillis(10);
+    public static final int DEFAULT_QUEUE_THRESHOLD = 2;
+    public static final Duration DEFAULT_SHRINK_AFTER = Duration.ofMinutes(1);
+
+    static final long SAMPLE_INTERVAL_MILLIS = 1_000;
+
+    private static final int GROW_SAMPLES = 2;
+    private static final double LOW_WATERMARK = 0.5;
+
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final long waitThresholdNanos;
+    private final int queueThreshold;
+    private final int shrinkSamples;
+
+    // 아래 값은 decide 에서만 바뀐다. (스케줄러 쓰레드 하나)
+    private int pressureStreak;
+    private int idleStreak;
+
+    private final LongAdder resizeCount = new LongAdder();
+
+    public PoolAutoScaler(int minPoolSize, int maxPoolSize) {
+        this(minPoolSize, maxPoolSize, DEFAULT_WAIT_THRESHOLD, DEFAULT_QUEUE_THRESHOLD, DEFAULT_SHRINK_AFTER);
+    }
+
+    public PoolAutoScaler(int minPoolSize, int maxPoolSize, Duration waitThreshold, int queueThreshold, Duration shrinkAfter) {
+        if (minPoolSize < 1 || minPoolSize > maxPoolSize) {
+            throw new IllegalArgumentException("1 <= minPoolSize <= maxPoolSize 이어야 합니다.");
+        }
+        if (queueThreshold < 1) {
+            throw new IllegalArgumentException("queueThreshold 는 1 이상이어야 합니다: " + queueThreshold);
+        }
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.waitThresholdNanos = waitThreshold.toNanos();
+        this.queueThreshold = queueThreshold;
+        this.shrinkSamples = (int) Math.max(1, shrinkAfter.toMillis() / SAMPLE_INTERVAL_MILLIS);
+    }
+
+    // 구간 수요를 보고 정한 풀 크기. 바꾸지 않으면 지금 크기를 돌려준다.
+    int decide(ConnectionPool.Demand demand) {
+        int capacity = demand.getCapacity();
+        if (capacity < minPoolSize) {
+            return resized(minPoolSize);
+        }
+        if (capacity > maxPoolSize) {
+            return resized(maxPoolSize);
+        }
+
+        boolean pressured = demand.meanWaitNanos() >= waitThresholdNanos || demand.getPeakWaiters() >= queueThreshold;
+        boolean idle = demand.getPeakWaiters() == 0 && demand.getPeakInUse() <= capacity * LOW_WATERMARK;
+        pressureStreak = pressured ? pressureStreak + 1 : 0;
+        idleStreak = idle ? idleStreak + 1 : 0;
+
+        if (pressureStreak >= GROW_SAMPLES && capacity < maxPoolSize) {
+            return resized(Math.min(maxPoolSize, Math.max(capacity + 1, (int) Math.ceil(capacity * 1.5))));
+        }
+        if (idleStreak >= shrinkSamples && capacity > minPoolSize) {
+            return resized(Math.max(minPoolSize, capacity - Math.max(1, capacity / 4)));
+        }
+        return capacity;
+    }
+
+    private int resized(int capacity) {
+        pressureStreak = 0;
+        idleStreak = 0;
+        resizeCount.increment();
+        return capacity;
+    }
+
+    static String describe(int from, int to, ConnectionPool.Demand demand) {
+        return "== 커넥션 풀 크기 " + from + " → " + to
+                + " (평균 대기 " + String.format("%.2f", demand.meanWaitNanos() / 1_000_000.0) + "ms"
+                + ", 최대 대기열 " + demand.getPeakWaiters()
+                + ", 최대 사용 " + demand.getPeakInUse() + ") ==";
+    }
+
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public long getResizeCount() {
+        return resizeCount.sum();
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.simpledb;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 쿼리 fingerprint 별 실행 통계를 모으는 인터셉터.
+ * <pre>
+ * QueryStatistics statistics = new QueryStatistics();
+ * simpleDb.addInterceptor(statistics);
+ * statistics.topByTotalTime(10).forEach(System.out::println);
+ * </pre>
+ * fingerprint 는 {@value #MAX_FINGERPRINTS}개까지만 따로 모으고, 그 뒤에 처음 보는 fingerprint 는 {@value #OTHER} 하나로 합친다.
+ * SQL 에 값을 이어 붙여 만드는 코드가 있어도 통계가 끝없이 커지지 않는다.
+ */
+public class QueryStatistics implements StatementInterceptor {
+
+    // 같은 SQL 텍스트를 매번 정규화하지 않도록 캐시한다. 동적으로 만든 SQL 이 많아도 커지지 않게 상한을 둔다.
+    private static final int MAX_CACHED_SQL = 10_000;
+
+    static final int MAX_FINGERPRINTS = 10_000;
+    static final String OTHER = "(other)";
+
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterExecute(StatementContext context, long elapsedNanos) {
+        statsOf(context.getSql()).record(elapsedNanos, context.getRowCount());
+    }
+
+    @Override
+    public void onError(StatementContext context, SQLException e, long elapsedNanos) {
+        statsOf(context.getSql()).recordError(elapsedNanos);
+    }
+
+    private QueryStats statsOf(String sql) {
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint == null) {
+            fingerprint = SqlFingerprint.of(sql);
+            if (fingerprints.size() < MAX_CACHED_SQL) {
+                fingerprints.put(sql, fingerprint);
+            }
+        }
+        QueryStats found = stats.get(fingerprint);
+        if (found != null) {
+            return found;
+        }
+        if (stats.size() >= MAX_FINGERPRINTS) {
+            fingerprint = OTHER;
+        }
+        return stats.computeIfAbsent(fingerprint, QueryStats::new);
+    }
+
+    public QueryStats get(String sql) {
+        return stats.get(SqlFingerprint.of(sql));
+    }
+
+    public List<QueryStats> topByTotalTime(int limit) {
+        return stats.values().stream()
+                .sorted(Comparator.comparingLong(QueryStats::getTotalNanos).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    int getFingerprintCount() {
+        return stats.size();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.simpledb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 쿼리 fingerprint 하나의 누적 실행 통계. 모든 카운터는 락 없이 갱신된다.
+ */
+public class QueryStats {
+
+    private final String fingerprint;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    QueryStats(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    void record(long elapsedNanos, long rowCount) {
+        calls.increment();
+        totalNanos.add(elapsedNanos);
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+        updateMax(elapsedNanos);
+    }
+
+    void recordError(long elapsedNanos) {
+        calls.increment();
+        errors.increment();
+        totalNanos.add(elapsedNanos);
+        updateMax(elapsedNanos);
+    }
+
+    private void updateMax(long elapsedNanos) {
+        long current = maxNanos.get();
+        while (elapsedNanos > current && !maxNanos.compareAndSet(current, elapsedNanos)) {
+            current = maxNanos.get();
+        }
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMeanNanos() {
+        long count = getCalls();
+        return count == 0 ? 0 : getTotalNanos() / count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("calls=%d, total=%.1fms, mean=%.2fms, max=%.2fms, rows=%d, errors=%d | %s",
+                getCalls(), getTotalNanos() / 1e6, getMeanNanos() / 1e6, getMaxNanos() / 1e6,
+                getRows(), getErrors(), fingerprint);
+    }
+}
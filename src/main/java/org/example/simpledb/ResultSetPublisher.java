@@ -0,0 +1,192 @@
+package org.example.simpledb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 구독자가 request(n) 으로 요청한 만큼만 ResultSet 에서 행을 읽어 내보내는 Publisher.
+ * 구독마다 쿼리를 새로 실행하고, 완료/오류/취소 시 커넥션을 풀에 반납한다.
+ * timeout 은 구독한 때부터 재며, 커넥션을 기다리는 시간과 쿼리 실행에 걸린다. 넘기면 onError(SQLTimeoutException) 로 끝난다.
+ */
+class ResultSetPublisher<T> implements Flow.Publisher<T> {
+
+    // 커서 fetch 로 나눠 받을 수 있을 때 한 번에 받는 행 수
+    static final int DEFAULT_FETCH_SIZE = 100;
+
+    private final SimpleDb simpleDb;
+    private final Class<T> clazz;
+    private final String sql;
+    private final Object[] parameters;
+    private final int fetchSize;
+    private final Duration timeout; // null 이면 구독한 쓰레드의 데드라인만 따른다
+    private final Executor executor;
+
+    ResultSetPublisher(SimpleDb simpleDb, Class<T> clazz, String sql, Object[] parameters, int fetchSize, Duration timeout, Executor executor) {
+        this.simpleDb = simpleDb;
+        this.clazz = clazz;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.fetchSize = fetchSize;
+        this.timeout = timeout;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Deadline deadline = simpleDb.currentDeadline();
+        if (timeout != null) {
+            deadline = Deadline.after(timeout).min(deadline);
+        }
+        subscriber.onSubscribe(new RowSubscription(subscriber, deadline));
+    }
+
+    private class RowSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Deadline deadline; // null 이면 제한 없음
+
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        // 아래 필드는 drain 을 실행하는 스레드 하나만 만진다. (wip 로 직렬화)
+        private boolean done;
+        private Connection conn;
+        private PreparedStatement pstmt;
+        private ResultSet rs;
+        private EntityMapper<T> mapper;
+
+        RowSubscription(Flow.Subscriber<? super T> subscriber, Deadline deadline) {
+            this.subscriber = subscriber;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Reactive Streams 규약 §3.9
+                invalidRequest = new IllegalArgumentException("request 는 0 보다 커야 합니다: " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (invalidRequest != null) {
+                finish();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+
+            try {
+                if (rs == null) {
+                    open();
+                }
+
+                while (demand.get() > 0 && !cancelled) {
+                    if (!rs.next()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    T row = mapper.map(rs);
+                    try {
+                        subscriber.onNext(row);
+                    } catch (RuntimeException e) {
+                        // Reactive Streams 규약 §2.13: 구독자가 던지면 구독을 취소한 것으로 보고 더 신호를 보내지 않는다.
+                        e.printStackTrace();
+                        cancelled = true;
+                        finish();
+                        return;
+                    }
+                    demand.decrementAndGet();
+                }
+
+                if (cancelled) {
+                    finish();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finish();
+                subscriber.onError(e);
+            } catch (SQLException | ReflectiveOperationException | RuntimeException e) {
+                // 매핑 중 런타임 예외도 커넥션을 돌려준 뒤 구독자에게 넘긴다.
+                finish();
+                subscriber.onError(e);
+            }
+        }
+
+        private void open() throws SQLException, InterruptedException, ReflectiveOperationException {
+            // 쓰레드에 묶지 않고 풀에서 직접 가져온다. drain 은 매번 다른 쓰레드에서 실행될 수 있다.
+            // 구독할 때 정한 데드라인을 이 쓰레드에 걸어 커넥션 대기와 쿼리 실행 모두에 적용한다.
+            try (Deadline.Scope ignored = simpleDb.bindDeadline(deadline)) {
+                conn = simpleDb.takeFromPool(ConnectionLane.BATCH, deadline);
+                pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                pstmt.setFetchSize(fetchSize);
+                for (int i = 0; i < parameters.length; i++) {
+                    pstmt.setObject(i + 1, parameters[i]);
+                }
+                PreparedStatement statement = pstmt;
+                // 행은 실행 이후 요청에 따라 읽으므로 실행 시점까지만 기록된다.
+                rs = simpleDb.execute(statement, sql, parameters, context -> statement.executeQuery());
+            }
+            mapper = new EntityMapper<>(clazz, rs.getMetaData());
+        }
+
+        private void finish() {
+            done = true;
+            try {
+                if (rs != null) {
+                    rs.close();
+                }
+                if (pstmt != null) {
+                    pstmt.close();
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } finally {
+                if (conn != null) {
+                    simpleDb.returnToPool(conn);
+                    conn = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.simpledb;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * 조회 결과 한 행을 표현하는 읽기 전용 Map.
+ * 컬럼 이름 → 인덱스 테이블(Columns)은 결과 집합 전체가 공유하고, 행마다 값 배열 하나만 할당한다.
+ */
+public class Row extends AbstractMap<String, Object> {
+
+    private final Columns columns;
+    private final Object[] values;
+
+    private Row(Columns columns, Object[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    static Row of(Columns columns, Object[] values) {
+        return new Row(columns, values);
+    }
+
+    static Row read(ResultSet rs, Columns columns) throws SQLException {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rs.getObject(i + 1);
+        }
+        return new Row(columns, values);
+    }
+
+    public Columns getColumns() {
+        return columns;
+    }
+
+    public Object get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = columns.indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return columns.indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return columns.distinct.length;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int cursor = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return cursor < columns.distinct.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = columns.distinct[cursor++];
+                        return new SimpleImmutableEntry<>(columns.names[index], values[index]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return columns.distinct.length;
+            }
+        };
+    }
+
+    /**
+     * 결과 집합 단위로 한 번만 만드는 컬럼 메타데이터.
+     * 같은 이름의 컬럼이 여러 개면 HashMap 에 넣을 때처럼 마지막 컬럼이 이긴다.
+     */
+    public static final class Columns {
+
+        private final String[] names;
+        private final Map<String, Integer> indexes;
+        private final int[] distinct;
+
+        private Columns(String[] names) {
+            this.names = names;
+            this.indexes = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                indexes.put(names[i], i);
+            }
+
+            int[] distinct = new int[indexes.size()];
+            int cursor = 0;
+            for (int i = 0; i < names.length; i++) {
+                if (indexes.get(names[i]) == i) {
+                    distinct[cursor++] = i;
+                }
+            }
+            this.distinct = distinct;
+        }
+
+        public static Columns of(ResultSetMetaData metaData) throws SQLException {
+            String[] names = new String[metaData.getColumnCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = metaData.getColumnName(i + 1);
+            }
+            return new Columns(names);
+        }
+
+        public int size() {
+            return names.length;
+        }
+
+        public String name(int index) {
+            return names[index];
+        }
+
+        public int indexOf(Object name) {
+            Integer index = indexes.get(name);
+            return index == null ? -1 : index;
+        }
+    }
+}
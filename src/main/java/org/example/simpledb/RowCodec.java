@@ -0,0 +1,298 @@
+package org.example.simpledb;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+/**
+ * RowLayout 배치대로 ResultSet 의 현재 행을 바이트로 쓰고, 버퍼에서 컬럼 값을 읽는다.
+ * 읽기는 절대 위치로만 하므로 같은 버퍼를 여러 쓰레드가 동시에 읽어도 된다. 쓰기(encode)는 한 쓰레드에서만 한다.
+ * <p>
+ * DATETIME 은 UTC 기준 epoch 마이크로초, DATE 는 epoch 일, TIME 은 하루 중 나노초로 저장한다.
+ */
+final class RowCodec {
+
+    private static final int INITIAL_SCRATCH_BYTES = 256;
+
+    private final RowLayout layout;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private ByteBuffer scratch;
+
+    RowCodec(RowLayout layout) {
+        this.layout = layout;
+        this.scratch = ByteBuffer.allocate(Math.max(INITIAL_SCRATCH_BYTES, layout.fixedBytes() * 2))
+                .order(ByteOrder.nativeOrder());
+    }
+
+    RowLayout getLayout() {
+        return layout;
+    }
+
+    // 현재 행을 [0, limit) 에 담은 버퍼를 돌려준다. 버퍼는 다음 encode 에서 다시 쓴다.
+    ByteBuffer encode(ResultSet rs) throws SQLException {
+        scratch.clear();
+        for (int i = 0; i < layout.nullBitmapBytes(); i++) {
+            scratch.put(i, (byte) 0);
+        }
+        scratch.position(layout.fixedBytes());
+
+        for (int column = 0; column < layout.columnCount(); column++) {
+            int columnIndex = column + 1;
+            int slot = layout.slotOffset(column);
+
+            switch (layout.kind(column)) {
+                case RowLayout.LONG: {
+                    long value = rs.getLong(columnIndex);
+                    if (rs.wasNull()) {
+                        setNull(column);
+                    } else {
+                        scratch.putLong(slot, value);
+                    }
+                    break;
+                }
+                case RowLayout.DOUBLE: {
+                    double value = rs.getDouble(columnIndex);
+                    if (rs.wasNull()) {
+                        setNull(column);
+                    } else {
+                        scratch.putDouble(slot, value);
+                    }
+                    break;
+                }
+                case RowLayout.BOOLEAN: {
+                    boolean value = rs.getBoolean(columnIndex);
+                    if (rs.wasNull()) {
+                        setNull(column);
+                    } else {
+                        scratch.putLong(slot, value ? 1 : 0);
+                    }
+                    break;
+                }
+                case RowLayout.DATETIME: {
+                    Timestamp value = rs.getTimestamp(columnIndex);
+                    if (value == null) {
+                        setNull(column);
+                    } else {
+                        LocalDateTime dateTime = value.toLocalDateTime();
+                        scratch.putLong(slot, dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000);
+                    }
+                    break;
+                }
+                case RowLayout.DATE: {
+                    Date value = rs.getDate(columnIndex);
+                    if (value == null) {
+                        setNull(column);
+                    } else {
+                        scratch.putLong(slot, value.toLocalDate().toEpochDay());
+                    }
+                    break;
+                }
+                case RowLayout.TIME: {
+                    Time value = rs.getTime(columnIndex);
+                    if (value == null) {
+                        setNull(column);
+                    } else {
+                        scratch.putLong(slot, value.toLocalTime().toNanoOfDay());
+                    }
+                    break;
+                }
+                case RowLayout.DECIMAL: {
+                    BigDecimal value = rs.getBigDecimal(columnIndex);
+                    putString(column, slot, value == null ? null : value.toString());
+                    break;
+                }
+                case RowLayout.STRING:
+                    putString(column, slot, rs.getString(columnIndex));
+                    break;
+                case RowLayout.BINARY:
+                    putBytes(column, slot, rs.getBytes(columnIndex));
+                    break;
+                default: {
+                    // 따로 다루지 않는 타입은 문자열로 보관한다.
+                    Object value = rs.getObject(columnIndex);
+                    putString(column, slot, value == null ? null : value.toString());
+                }
+            }
+        }
+
+        scratch.flip();
+        return scratch;
+    }
+
+    private void setNull(int column) {
+        int index = column >>> 3;
+        scratch.put(index, (byte) (scratch.get(index) | (1 << (column & 7))));
+    }
+
+    private void putString(int column, int slot, String value) {
+        if (value == null) {
+            setNull(column);
+            return;
+        }
+        int start = scratch.position();
+        while (true) {
+            encoder.reset();
+            CoderResult result = encoder.encode(CharBuffer.wrap(value), scratch, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(scratch);
+            }
+            if (!result.isOverflow()) {
+                break;
+            }
+            scratch.position(start);
+            grow(value.length() * 3);
+        }
+        putReference(slot, start, scratch.position() - start);
+    }
+
+    private void putBytes(int column, int slot, byte[] value) {
+        if (value == null) {
+            setNull(column);
+            return;
+        }
+        if (scratch.remaining() < value.length) {
+            grow(value.length);
+        }
+        int start = scratch.position();
+        scratch.put(value);
+        putReference(slot, start, value.length);
+    }
+
+    private void putReference(int slot, int offset, int length) {
+        scratch.putInt(slot, offset);
+        scratch.putInt(slot + 4, length);
+    }
+
+    private void grow(int needed) {
+        int capacity = scratch.capacity();
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(capacity * 2, capacity + needed)).order(ByteOrder.nativeOrder());
+        scratch.flip();
+        grown.put(scratch);
+        scratch = grown;
+    }
+
+    boolean isNull(ByteBuffer buf, int row, int column) {
+        return (buf.get(row + (column >>> 3)) & (1 << (column & 7))) != 0;
+    }
+
+    long getLong(ByteBuffer buf, int row, int column) {
+        requireKind(column, RowLayout.LONG);
+        return isNull(buf, row, column) ? 0 : buf.getLong(row + layout.slotOffset(column));
+    }
+
+    double getDouble(ByteBuffer buf, int row, int column) {
+        requireKind(column, RowLayout.DOUBLE);
+        return isNull(buf, row, column) ? 0 : buf.getDouble(row + layout.slotOffset(column));
+    }
+
+    boolean getBoolean(ByteBuffer buf, int row, int column) {
+        requireKind(column, RowLayout.BOOLEAN);
+        return !isNull(buf, row, column) && buf.getLong(row + layout.slotOffset(column)) != 0;
+    }
+
+    LocalDateTime getLocalDateTime(ByteBuffer buf, int row, int column) {
+        requireKind(column, RowLayout.DATETIME);
+        if (isNull(buf, row, column)) {
+            return null;
+        }
+        long micros = buf.getLong(row + layout.slotOffset(column));
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    LocalDate getLocalDate(ByteBuffer buf, int row, int column) {
+        requireKind(column, RowLayout.DATE);
+        return isNull(buf, row, column) ? null : LocalDate.ofEpochDay(buf.getLong(row + layout.slotOffset(column)));
+    }
+
+    LocalTime getLocalTime(ByteBuffer buf, int row, int column) {
+        requireKind(column, RowLayout.TIME);
+        return isNull(buf, row, column) ? null : LocalTime.ofNanoOfDay(buf.getLong(row + layout.slotOffset(column)));
+    }
+
+    BigDecimal getBigDecimal(ByteBuffer buf, int row, int column) {
+        requireKind(column, RowLayout.DECIMAL);
+        return isNull(buf, row, column) ? null : new BigDecimal(readString(buf, row, column));
+    }
+
+    String getString(ByteBuffer buf, int row, int column) {
+        int kind = layout.kind(column);
+        if (kind != RowLayout.STRING && kind != RowLayout.OTHER) {
+            requireKind(column, RowLayout.STRING);
+        }
+        return isNull(buf, row, column) ? null : readString(buf, row, column);
+    }
+
+    byte[] getBytes(ByteBuffer buf, int row, int column) {
+        requireKind(column, RowLayout.BINARY);
+        return isNull(buf, row, column) ? null : readBytes(buf, row, column);
+    }
+
+    // 컬럼 종류에 맞는 객체로 꺼낸다. 정수는 모두 Long 이다.
+    Object getObject(ByteBuffer buf, int row, int column) {
+        if (isNull(buf, row, column)) {
+            return null;
+        }
+        switch (layout.kind(column)) {
+            case RowLayout.LONG:
+                return getLong(buf, row, column);
+            case RowLayout.DOUBLE:
+                return getDouble(buf, row, column);
+            case RowLayout.BOOLEAN:
+                return getBoolean(buf, row, column);
+            case RowLayout.DATETIME:
+                return getLocalDateTime(buf, row, column);
+            case RowLayout.DATE:
+                return getLocalDate(buf, row, column);
+            case RowLayout.TIME:
+                return getLocalTime(buf, row, column);
+            case RowLayout.DECIMAL:
+                return getBigDecimal(buf, row, column);
+            case RowLayout.BINARY:
+                return getBytes(buf, row, column);
+            default:
+                return readString(buf, row, column);
+        }
+    }
+
+    Row getRow(ByteBuffer buf, int row) {
+        Object[] values = new Object[layout.columnCount()];
+        for (int column = 0; column < values.length; column++) {
+            values[column] = getObject(buf, row, column);
+        }
+        return Row.of(layout.getColumns(), values);
+    }
+
+    private String readString(ByteBuffer buf, int row, int column) {
+        return new String(readBytes(buf, row, column), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(ByteBuffer buf, int row, int column) {
+        int slot = row + layout.slotOffset(column);
+        byte[] bytes = new byte[buf.getInt(slot + 4)];
+        buf.get(row + buf.getInt(slot), bytes);
+        return bytes;
+    }
+
+    private void requireKind(int column, int kind) {
+        if (layout.kind(column) != kind) {
+            throw new IllegalArgumentException("'" + layout.getColumns().name(column) + "' 컬럼은 요청한 타입으로 읽을 수 없습니다.");
+        }
+    }
+}
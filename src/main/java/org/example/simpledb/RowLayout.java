@@ -0,0 +1,120 @@
+package org.example.simpledb;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * 결과 집합의 컬럼별 값 종류와, 한 행을 바이트로 펼칠 때의 배치.
+ * <pre>
+ * [null 비트맵][컬럼마다 8바이트 슬롯][가변 길이 데이터]
+ * </pre>
+ * 숫자/날짜는 슬롯에 값을 그대로 넣고, 문자열/바이너리/DECIMAL 은 슬롯에 (행 안의 위치, 길이)를 넣는다.
+ * 그래서 어떤 컬럼이든 행 시작 위치만 알면 바로 읽을 수 있다.
+ */
+final class RowLayout {
+
+    static final int LONG = 0;
+    static final int DOUBLE = 1;
+    static final int DECIMAL = 2;
+    static final int BOOLEAN = 3;
+    static final int STRING = 4;
+    static final int DATETIME = 5;
+    static final int DATE = 6;
+    static final int TIME = 7;
+    static final int BINARY = 8;
+    static final int OTHER = 9;
+
+    static final int SLOT_BYTES = 8;
+
+    private final Row.Columns columns;
+    private final int[] kinds;
+    private final int nullBitmapBytes;
+
+    private RowLayout(Row.Columns columns, int[] kinds) {
+        this.columns = columns;
+        this.kinds = kinds;
+        this.nullBitmapBytes = (kinds.length + 7) / 8;
+    }
+
+    static RowLayout of(ResultSetMetaData metaData) throws SQLException {
+        int[] kinds = new int[metaData.getColumnCount()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = kindOf(metaData.getColumnType(i + 1), metaData.isSigned(i + 1));
+        }
+        return new RowLayout(Row.Columns.of(metaData), kinds);
+    }
+
+    static int kindOf(int sqlType, boolean signed) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return LONG;
+            case Types.BIGINT:
+                // BIGINT UNSIGNED 는 long 범위를 넘을 수 있다.
+                return signed ? LONG : DECIMAL;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return DOUBLE;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return DECIMAL;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return BOOLEAN;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+                return STRING;
+            case Types.TIMESTAMP:
+                return DATETIME;
+            case Types.DATE:
+                return DATE;
+            case Types.TIME:
+                return TIME;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return BINARY;
+            default:
+                return OTHER;
+        }
+    }
+
+    // 슬롯에 값 대신 (위치, 길이)가 들어가는 종류
+    static boolean isVariableLength(int kind) {
+        return kind == STRING || kind == BINARY || kind == DECIMAL || kind == OTHER;
+    }
+
+    Row.Columns getColumns() {
+        return columns;
+    }
+
+    int columnCount() {
+        return kinds.length;
+    }
+
+    int kind(int column) {
+        return kinds[column];
+    }
+
+    int nullBitmapBytes() {
+        return nullBitmapBytes;
+    }
+
+    int slotOffset(int column) {
+        return nullBitmapBytes + column * SLOT_BYTES;
+    }
+
+    // 가변 길이 데이터가 시작하는 위치 = 고정 부분의 크기
+    int fixedBytes() {
+        return nullBitmapBytes + kinds.length * SLOT_BYTES;
+    }
+}
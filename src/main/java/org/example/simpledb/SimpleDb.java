@@ -1,16 +1,27 @@
 package org.example.simpledb;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.Data;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.sql.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Data
 public class SimpleDb {
@@ -20,24 +31,425 @@ public class SimpleDb {
     private final String password;
     private boolean devMode;
 
-    private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final ScheduledExecutorService scheduler;
     private final Map<Connection, Long> connectionTimestamps = new ConcurrentHashMap<>();
 
-    private final int MAX_POOL_SIZE = 1;
-
     private final int CONNECTION_TIME_OUT = 10;
 
-    private BlockingQueue<Connection> connectionPool;
+    private static final int BULK_INSERT_MAX_ROWS = 1_000; // INSERT 문 하나에 넣을 최대 행 수
+
+    private final Dialect dialect;
+
+    private final SimpleDbConfig config;
+
+    private ConnectionPool connectionPool;
+
+    // getConnection 부터 가장 바깥 releaseConnection 까지만 걸어 둔다.
+    private ThreadLocal<ConnectionScope> threadLocalScope = new ThreadLocal<>();
+
+    // 풀에서 빌려 간 커넥션의 범위. 다른 쓰레드에서 반납하거나 회수할 때 찾는다.
+    private final Map<Connection, ConnectionScope> boundScopes = new ConcurrentHashMap<>();
+
+    // virtualThreads 모드에서 풀 앞에 두는 세마포어. null 이면 바로 풀에서 기다린다.
+    private final AcquireGate acquireGate;
+
+    private ThreadLocal<ConnectionLane> threadLocalLane = ThreadLocal.withInitial(() -> ConnectionLane.INTERACTIVE);
+
+    private ThreadLocal<Deadline> threadLocalDeadline = new ThreadLocal<>();
+
+    private Duration defaultQueryTimeout; // null 이면 제한 없음
+
+    private final StatementWatchdog statementWatchdog = new StatementWatchdog();
+
+    // devMode 에서 SQL 과 트랜잭션을 남긴다. 출력은 별도 쓰레드가 한다.
+    private final SqlLog sqlLog;
+
+    // 테이블(소문자)별 음성 캐시. 쓰기 경로에서 알려 준다.
+    private final Map<String, List<ExistenceFilter>> existenceFilters = new ConcurrentHashMap<>();
 
-    private ThreadLocal<Connection> threadLocalConnection = new ThreadLocal<>();
+    private static final Pattern INSERT_TABLE = Pattern.compile("^\\s*(?:INSERT|REPLACE)\\s+(?:IGNORE\\s+)?(?:INTO\\s+)?`?(\\w+)`?", Pattern.CASE_INSENSITIVE);
+
+    // Sql.coalesce() 로 켠 읽기를 합친다.
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    // 쿼리 모양별로 읽은 행 수. 다음 실행의 fetch size 를 정한다.
+    private final FetchSizeAdvisor fetchSizeAdvisor = new FetchSizeAdvisor();
+
+    // adaptiveFetchSize 설정이 켜져 있고 dialect 가 fetch size 를 바꿀 수 있을 때만 모양을 모은다.
+    private final boolean adaptiveFetchSize;
+
+    // Sql.track() 으로 읽은 엔티티의 값. save 할 때 바뀐 필드만 고른다.
+    private final EntitySnapshots entitySnapshots = new EntitySnapshots();
+
+    private volatile ConcurrencyLimiter concurrencyLimiter; // null 이면 제한 없음
+
+    private volatile PoolAutoScaler poolAutoScaler; // null 이면 크기 고정
+    private ScheduledFuture<?> poolAutoScaling;
+
+    private static final StatementInterceptor[] NO_INTERCEPTORS = new StatementInterceptor[0];
+
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    // 실행 경로에서는 배열 길이만 확인한다. 등록/해제 시에만 새 배열로 바꾼다.
+    private volatile StatementInterceptor[] interceptors = NO_INTERCEPTORS;
 
     public SimpleDb(String host, String username, String password, String dbName) {
-        this.url = "jdbc:mysql://" + host + ":3306/" + dbName;
-        this.username = username;
-        this.password = password;
+        this(new MySqlDialect(), host, username, password, dbName);
+    }
+
+    public SimpleDb(Dialect dialect, String host, String username, String password, String dbName) {
+        this(SimpleDbConfig.builder()
+                .dialect(dialect)
+                .host(host)
+                .username(username)
+                .password(password)
+                .dbName(dbName)
+                .build());
+    }
+
+    public SimpleDb(SimpleDbConfig config) {
+        this(config, null);
+    }
 
-        initializeConnectionPool();
+    // tenants 가 있으면 풀은 비어서 시작하고, 전체 커넥션 한도와 정리 쓰레드, SQL 로그를 다른 테넌트와 같이 쓴다.
+    SimpleDb(SimpleDbConfig config, TenantPoolManager tenants) {
+        this.config = config;
+        this.dialect = config.getDialect();
+        this.url = dialect.url(config.getHost(), config.getDbName());
+        this.username = config.getUsername();
+        this.password = config.getPassword();
+        this.defaultQueryTimeout = config.getQueryTimeout();
+        // 커서 fetch 없는 MySQL 처럼 어떤 값을 골라도 쓰지 않는 경우엔 쿼리마다 모양을 찾고 기록하지 않는다.
+        this.adaptiveFetchSize = config.isAdaptiveFetchSize() && dialect.adaptiveFetchSize(FetchSizeAdvisor.MAX_FETCH_SIZE, config) >= 0;
+        this.acquireGate = config.isVirtualThreads() ? new AcquireGate(config.getPoolSize()) : null;
+
+        this.scheduler = tenants == null ? Executors.newScheduledThreadPool(1) : tenants.getScheduler();
+        this.sqlLog = tenants == null ? new SqlLog(System.out) : tenants.getSqlLog();
+
+        if (tenants == null) {
+            initializeConnectionPool();
+        } else {
+            connectionPool = tenants.newPool(config.getPoolSize(), this::createConnection);
+        }
         startConnectionTimeoutCheck();
+        startStatementWatchdog();
+    }
+
+    // 같은 JVM 안의 H2 인메모리 DB 를 쓴다. 같은 dbName 이면 같은 DB 를 본다.
+    public static SimpleDb embedded(String dbName) {
+        return new SimpleDb(new H2Dialect(), null, "sa", "", dbName);
+    }
+
+    private void startStatementWatchdog() {
+        scheduler.scheduleAtFixedRate(statementWatchdog::check,
+                StatementWatchdog.CHECK_INTERVAL_MILLIS, StatementWatchdog.CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void setDefaultQueryTimeout(Duration defaultQueryTimeout) {
+        this.defaultQueryTimeout = defaultQueryTimeout;
+    }
+
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    // 수요에 따라 풀 크기를 바꾼다. null 을 넘기면 지금 크기에서 멈춘다.
+    public synchronized void setPoolAutoScaler(PoolAutoScaler poolAutoScaler) {
+        this.poolAutoScaler = poolAutoScaler;
+        if (poolAutoScaler != null && poolAutoScaling == null) {
+            poolAutoScaling = scheduler.scheduleAtFixedRate(this::autoScalePool,
+                    PoolAutoScaler.SAMPLE_INTERVAL_MILLIS, PoolAutoScaler.SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else if (poolAutoScaler == null && poolAutoScaling != null) {
+            poolAutoScaling.cancel(false);
+            poolAutoScaling = null;
+        }
+    }
+
+    // 스케줄러 쓰레드에서 돈다. 예외가 나가면 이후 실행이 멈추므로 여기서 끊는다.
+    private void autoScalePool() {
+        PoolAutoScaler scaler = poolAutoScaler;
+        if (scaler == null) {
+            return;
+        }
+        try {
+            ConnectionPool.Demand demand = connectionPool.sampleDemand();
+            int capacity = scaler.decide(demand);
+            if (capacity == demand.getCapacity()) {
+                return;
+            }
+            connectionPool.resize(capacity);
+            if (acquireGate != null) {
+                acquireGate.resize(capacity - demand.getCapacity());
+            }
+            sqlLog.message(PoolAutoScaler.describe(demand.getCapacity(), capacity, demand));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public int getPoolSize() {
+        return connectionPool.getCapacity();
+    }
+
+    public synchronized void addInterceptor(StatementInterceptor interceptor) {
+        StatementInterceptor[] next = Arrays.copyOf(interceptors, interceptors.length + 1);
+        next[interceptors.length] = interceptor;
+        interceptors = next;
+    }
+
+    public synchronized void removeInterceptor(StatementInterceptor interceptor) {
+        List<StatementInterceptor> next = new ArrayList<>(Arrays.asList(interceptors));
+        next.remove(interceptor);
+        interceptors = next.isEmpty() ? NO_INTERCEPTORS : next.toArray(NO_INTERCEPTORS);
+    }
+
+    public long getCancelledStatementCount() {
+        return statementWatchdog.getCancelledCount();
+    }
+
+    // 범위 안의 모든 쿼리(커넥션 대기 포함)가 budget 을 나눠 쓴다. 바깥 범위가 더 짧으면 바깥을 따른다.
+    public Deadline.Scope deadline(Duration budget) {
+        Deadline previous = threadLocalDeadline.get();
+        threadLocalDeadline.set(Deadline.after(budget).min(previous));
+        return new Deadline.Scope(threadLocalDeadline, previous);
+    }
+
+    Deadline currentDeadline() {
+        return threadLocalDeadline.get();
+    }
+
+    /**
+     * 같은 SQL 과 파라미터로 동시에 들어온 읽기는 한 번만 실행하고 결과를 나눠 준다.
+     * 쓰레드에 커넥션이 묶여 있으면(트랜잭션 중) 자기 커넥션에서 봐야 하므로 합치지 않는다.
+     * work 는 오류를 삼키지 않는 query* 여야 한다. 먼저 온 쪽이 시간 초과로 실패하면 함께 기다린 쪽도 잘린 결과 대신 같은 예외를 받는다.
+     * 그래서 timeout 이 다른 호출은 서로 합치지 않는다.
+     */
+    <T> T coalesce(String terminal, String sql, Object[] parameters, Duration timeout, SqlWork<T> work) throws SQLException {
+        if (threadLocalScope.get() != null) {
+            return work.run();
+        }
+        Object key = Arrays.asList(terminal, sql, Arrays.asList(parameters), timeout);
+        return singleFlight.run(key, currentDeadline(), work);
+    }
+
+    // sql 은 "SELECT * FROM article WHERE id IN (?)" 꼴이다. 모은 조회는 공용 ForkJoinPool 에서 실행한다.
+    public <T> BatchLoader<T> batchLoader(Class<T> clazz, String sql, String keyColumn, Duration window) {
+        return batchLoader(clazz, sql, keyColumn, window, ForkJoinPool.commonPool());
+    }
+
+    public <T> BatchLoader<T> batchLoader(Class<T> clazz, String sql, String keyColumn, Duration window, Executor executor) {
+        return new BatchLoader<>(this, clazz, sql, keyColumn, window, executor, dialect.maxInListSize());
+    }
+
+    /**
+     * 테이블에 없는 키를 쿼리 없이 걸러내는 필터를 만든다. 만들 때 keyColumn 을 모두 읽는다.
+     * keyColumn 은 insert() 가 돌려주는 자동 증가 id 여야 새 행이 바로 반영된다.
+     */
+    public ExistenceFilter existenceFilter(String table, String keyColumn) throws SQLException {
+        ExistenceFilter filter = new ExistenceFilter(this, table, keyColumn);
+        // 먼저 등록해서, 읽는 동안 들어온 insert 도 받는다.
+        existenceFilters.computeIfAbsent(table.toLowerCase(), key -> new CopyOnWriteArrayList<>()).add(filter);
+        filter.rebuild();
+        return filter;
+    }
+
+    // 한 행만 넣었고 생성된 id 를 알면 바로 더한다. 아니면 다시 만들 때까지 필터를 쓰지 않는다.
+    private void notifyInsert(Connection conn, String sql, long id, long rowCount) {
+        List<ExistenceFilter> filters = filtersOf(sql);
+        if (filters.isEmpty()) {
+            return;
+        }
+        afterCommit(conn, () -> {
+            for (ExistenceFilter filter : filters) {
+                if (id != -1 && rowCount == 1) {
+                    filter.onInsert(id);
+                } else {
+                    filter.markStale();
+                }
+            }
+        });
+    }
+
+    // 어떤 키가 생겼는지 모르는 INSERT / REPLACE
+    private void notifyWrite(Connection conn, String sql) {
+        if (existenceFilters.isEmpty()) {
+            return;
+        }
+        List<ExistenceFilter> filters = filtersOf(sql);
+        if (!filters.isEmpty()) {
+            afterCommit(conn, () -> filters.forEach(ExistenceFilter::markStale));
+        }
+    }
+
+    private void markFiltersStale(Connection conn, String table) {
+        if (existenceFilters.isEmpty()) {
+            return;
+        }
+        List<ExistenceFilter> filters = existenceFilters.getOrDefault(table.toLowerCase(), List.of());
+        if (!filters.isEmpty()) {
+            afterCommit(conn, () -> filters.forEach(ExistenceFilter::markStale));
+        }
+    }
+
+    // 트랜잭션 안의 쓰기는 커밋한 뒤에 필터에 알린다.
+    // 커밋 전에 알리면 다른 쓰레드에 아직 보이지 않는 키를 조회한 쪽이 없는 키로 기억하고, 롤백한 키도 남는다.
+    private void afterCommit(Connection conn, Runnable update) {
+        ConnectionScope scope = boundScopes.get(conn);
+        if (scope != null && scope.isTransactional()) {
+            scope.afterCommit(update);
+        } else {
+            update.run();
+        }
+    }
+
+    // 지금 쓰레드가 트랜잭션을 열어 둔 커넥션을 쓰고 있다.
+    boolean inTransaction() {
+        ConnectionScope scope = threadLocalScope.get();
+        return scope != null && scope.isTransactional();
+    }
+
+    private List<ExistenceFilter> filtersOf(String sql) {
+        Matcher matcher = INSERT_TABLE.matcher(sql);
+        if (!matcher.find()) {
+            return List.of();
+        }
+        return existenceFilters.getOrDefault(matcher.group(1).toLowerCase(), List.of());
+    }
+
+    ScheduledFuture<?> schedule(Runnable task, Duration delay) {
+        return scheduler.schedule(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // 합쳐져서 DB 에 가지 않고 다른 쓰레드의 결과를 받은 읽기 수
+    public long getCoalescedReadCount() {
+        return singleFlight.getCoalescedCount();
+    }
+
+    // 다른 쓰레드에서 호출자의 데드라인을 이어서 쓸 때
+    Deadline.Scope bindDeadline(Deadline deadline) {
+        if (deadline == null) {
+            return Deadline.Scope.NONE;
+        }
+        Deadline previous = threadLocalDeadline.get();
+        threadLocalDeadline.set(deadline);
+        return new Deadline.Scope(threadLocalDeadline, previous);
+    }
+
+    public <T> T withDeadline(Duration budget, SqlWork<T> work) throws SQLException {
+        try (Deadline.Scope ignored = deadline(budget)) {
+            return work.run();
+        }
+    }
+
+    <T> T execute(Statement stmt, String sql, Object[] parameters, StatementWork<T> work) throws SQLException {
+        Deadline deadline = threadLocalDeadline.get();
+        if (defaultQueryTimeout != null) {
+            deadline = Deadline.after(defaultQueryTimeout).min(deadline);
+        }
+
+        if (deadline != null) {
+            long remainingNanos = deadline.remainingNanos();
+            if (remainingNanos <= 0) {
+                throw new SQLTimeoutException("쿼리 시간 예산을 모두 사용했습니다.");
+            }
+            // JDBC 타임아웃은 초 단위라 올림한다. 초 미만은 watchdog 이 처리한다.
+            stmt.setQueryTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remainingNanos + 999_999_999L)));
+        }
+
+        FetchSizeAdvisor.Shape shape = adaptiveFetchSize ? fetchSizeAdvisor.shapeOf(sql) : null;
+        if (shape != null) {
+            adviseFetchSize(stmt, shape);
+        }
+
+        StatementContext context = new StatementContext(sql, parameters);
+        ConnectionScope scope = threadLocalScope.get();
+        context.setConnectionWaitNanos(scope == null ? 0 : scope.takeWaitNanos());
+        context.setConnectionId(System.identityHashCode(stmt.getConnection()));
+        context.setFetchSize(stmt.getFetchSize());
+
+        StatementInterceptor[] interceptors = this.interceptors;
+        if (interceptors.length != 0) {
+            beforeExecute(interceptors, context);
+        }
+
+        StatementWatchdog.Running running = statementWatchdog.register(stmt, deadline);
+        long startNanos = System.nanoTime();
+        try {
+            T result = work.run(context);
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            ConcurrencyLimiter limiter = concurrencyLimiter;
+            if (limiter != null) {
+                limiter.onSample(elapsedNanos);
+            }
+            if (shape != null && context.getRowCount() >= 0) {
+                shape.record(context.getRowCount());
+            }
+            if (interceptors.length != 0) {
+                afterExecute(interceptors, context, elapsedNanos);
+            }
+            return result;
+        } catch (SQLException e) {
+            SQLException failure = e;
+            if (running.isCancelled()) {
+                failure = new SQLTimeoutException("쿼리가 취소되었습니다. (데드라인 초과 또는 인터럽트)", e);
+            } else if (e instanceof SQLTimeoutException) {
+                statementWatchdog.recordDriverTimeout();
+            }
+            if (interceptors.length != 0) {
+                onError(interceptors, context, failure, System.nanoTime() - startNanos);
+            }
+            throw failure;
+        } finally {
+            statementWatchdog.unregister(running);
+        }
+    }
+
+    // 스트리밍이나 Publisher 처럼 호출한 쪽이 fetch size 를 따로 정한 statement 는 그대로 둔다.
+    private void adviseFetchSize(Statement stmt, FetchSizeAdvisor.Shape shape) throws SQLException {
+        int advised = shape.fetchSize();
+        if (advised < 0) {
+            return;
+        }
+        int current = stmt.getFetchSize();
+        if (current != 0 && current != config.getFetchSize()) {
+            return;
+        }
+        int fetchSize = dialect.adaptiveFetchSize(advised, config);
+        if (fetchSize >= 0 && fetchSize != current) {
+            stmt.setFetchSize(fetchSize);
+        }
+    }
+
+    // 인터셉터의 예외는 쿼리 실행에 영향을 주지 않는다.
+    private static void beforeExecute(StatementInterceptor[] interceptors, StatementContext context) {
+        for (StatementInterceptor interceptor : interceptors) {
+            try {
+                interceptor.beforeExecute(context);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void afterExecute(StatementInterceptor[] interceptors, StatementContext context, long elapsedNanos) {
+        for (StatementInterceptor interceptor : interceptors) {
+            try {
+                interceptor.afterExecute(context, elapsedNanos);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void onError(StatementInterceptor[] interceptors, StatementContext context, SQLException failure, long elapsedNanos) {
+        for (StatementInterceptor interceptor : interceptors) {
+            try {
+                interceptor.onError(context, failure, elapsedNanos);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     private void startConnectionTimeoutCheck() {
@@ -47,49 +459,105 @@ public class SimpleDb {
                 Connection connection = entry.getKey();
                 long lastUsedTime = entry.getValue();
 
-                if (currentTime - lastUsedTime > 30000) { // 30초 경과 체크
+                if (currentTime - lastUsedTime > config.getLeakTimeout().toMillis()) { // 기본 30초 경과 체크
                     releaseExpiredConnection(connection);
                 }
             }
         }, 0, CONNECTION_TIME_OUT, TimeUnit.SECONDS); // 10초마다 커넥션 사용 시간 확인
     }
 
+    // 감시 쓰레드에서 부른다. 주인 쓰레드의 범위는 만료로 표시만 하고, 주인이 다음에 커넥션을 찾을 때 떼어 낸다.
     public void releaseExpiredConnection(Connection conn) {
         if (conn != null) {
-            connectionPool.offer(conn);
-            threadLocalConnection.remove();
+            ConnectionScope scope = boundScopes.remove(conn);
             connectionTimestamps.remove(conn); // 사용 시간 정보 제거
+            if (scope == null) {
+                return; // 이미 반납되었다.
+            }
+            scope.expire();
+            releasePermit(scope.getLimiter());
+            returnToPool(conn);
         }
     }
 
-    public void setDevMod(boolean devMode) {
+    // Lombok 이 만드는 setter 는 필드만 바꾸므로 직접 정의해 SQL 로그 인터셉터를 같이 붙이고 뗀다.
+    // 켤 때 설정도 SQL 로그로 한 번 남긴다. 꺼져 있으면 아무것도 출력하지 않는다.
+    public void setDevMode(boolean devMode) {
+        boolean turnedOn = devMode && !this.devMode;
         this.devMode = devMode;
+        removeInterceptor(sqlLog);
+        if (devMode) {
+            addInterceptor(sqlLog);
+        }
+        if (turnedOn) {
+            sqlLog.message(config.describe());
+        }
+    }
+
+    public void setDevMod(boolean devMode) {
+        setDevMode(devMode);
     }
 
     private void initializeConnectionPool() {
+        List<Connection> connections = new ArrayList<>();
         try {
-            connectionPool = new LinkedBlockingQueue<>(MAX_POOL_SIZE);
-            for (int i = 0; i < MAX_POOL_SIZE; i++) {
-                connectionPool.offer(createConnection());
+            for (int i = 0; i < config.getPoolSize(); i++) {
+                connections.add(createConnection());
             }
             startConnectionTimeoutCheck(); // 주기적으로 커넥션 사용 시간 확인 시작
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        connectionPool = new ConnectionPool(connections, this::createConnection);
     }
 
     public int getAvailableConnectionCount() {
-        return connectionPool.size();
+        return connectionPool.idleCount();
+    }
+
+    // 레인이 풀에서 따로 떼어 둘 몫. 다른 레인은 이 몫을 가져가지 못한다.
+    public void setLaneReservedShare(ConnectionLane lane, double share) {
+        connectionPool.setReservedShare(lane, share);
+    }
+
+    public <T> T inLane(ConnectionLane lane, SqlWork<T> work) throws SQLException {
+        ConnectionLane previous = threadLocalLane.get();
+        threadLocalLane.set(lane);
+        try {
+            return work.run();
+        } finally {
+            threadLocalLane.set(previous);
+        }
     }
 
     public void startTransaction(Connection conn) throws SQLException {
-        System.out.println("== 트랜잭션 시작 ==");
+        if (devMode) {
+            sqlLog.transaction("== 트랜잭션 시작 ==", conn);
+        }
         conn.setAutoCommit(false);
-        threadLocalConnection.set(conn);
+        ConnectionScope scope = threadLocalScope.get();
+        if (scope == null || scope.getConnection() != conn) {
+            // getConnection 을 거치지 않은 커넥션이면 여기서 범위를 연다. releaseConnection 으로 닫는다.
+            scope = new ConnectionScope(conn, null, 0);
+            bind(scope);
+        }
+        scope.setTransactional(true);
     }
 
     private PreparedStatement prepareStatement(String sql, Object... parameters) throws SQLException {
         PreparedStatement pstmt = getConnection().prepareStatement(sql);
+        if (config.getFetchSize() > 0) {
+            pstmt.setFetchSize(config.getFetchSize());
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            pstmt.setObject(i + 1, parameters[i]);
+        }
+        return pstmt;
+    }
+
+    private PreparedStatement prepareStreamingStatement(String sql, Object... parameters) throws SQLException {
+        PreparedStatement pstmt = getConnection().prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pstmt.setFetchSize(dialect.streamingFetchSize());
         for (int i = 0; i < parameters.length; i++) {
             pstmt.setObject(i + 1, parameters[i]);
         }
@@ -97,23 +565,35 @@ public class SimpleDb {
     }
 
     public void commitTransaction(Connection conn) {
-        System.out.println(conn);
+        if (devMode) {
+            sqlLog.transaction("== 트랜잭션 커밋 ==", conn);
+        }
 
         if (conn != null) {
             try {
-                System.out.println("== 트랜잭션 커밋 ==");
                 conn.commit();
             } catch (SQLException e) {
                 e.printStackTrace();
+                return;
+            }
+            ConnectionScope scope = boundScopes.get(conn);
+            if (scope != null) {
+                scope.committed();
             }
         }
 
     }
 
     public void rollbackTransaction(Connection conn) {
-        System.out.println(conn);
+        if (devMode) {
+            sqlLog.transaction("== 트랜잭션 롤백 ==", conn);
+        }
 
         if (conn != null) {
+            ConnectionScope scope = boundScopes.get(conn);
+            if (scope != null) {
+                scope.rolledBack();
+            }
             try {
                 conn.rollback();
             } catch (SQLException e) {
@@ -123,8 +603,14 @@ public class SimpleDb {
     }
 
     public void endTransaction(Connection conn) {
-        System.out.println(conn);
+        if (devMode) {
+            sqlLog.transaction("== 트랜잭션 종료 ==", conn);
+        }
         if (conn != null) {
+            ConnectionScope scope = boundScopes.get(conn);
+            if (scope != null) {
+                scope.setTransactional(false);
+            }
             try {
                 conn.setAutoCommit(true);
             } catch (SQLException e) {
@@ -134,29 +620,148 @@ public class SimpleDb {
     }
 
     private Connection createConnection() throws SQLException {
-        return DriverManager.getConnection(url, username, password);
+        Properties properties = dialect.driverProperties(config);
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        return DriverManager.getConnection(url, properties);
     }
 
     public Connection getConnection() throws SQLException {
-        Connection connection = threadLocalConnection.get();
-        if (connection == null) {
+        return getConnection(threadLocalLane.get());
+    }
+
+    public Connection getConnection(ConnectionLane lane) throws SQLException {
+        ConnectionScope scope = threadLocalScope.get();
+        if (scope != null && scope.isExpired()) {
+            threadLocalScope.remove();
+            scope = null;
+        }
+        if (scope != null) {
+            scope.enter();
+        } else {
+            // 풀 앞에서 동시 실행 수를 제한한다. 한도를 넘으면 줄 서지 않고 바로 실패한다.
+            ConcurrencyLimiter limiter = concurrencyLimiter;
+            if (limiter != null && !limiter.tryAcquire()) {
+                throw new SQLTransientConnectionException("동시 실행 한도(" + limiter.getLimit() + ")를 넘어 요청을 거절했습니다.");
+            }
             try {
-                connection = connectionPool.take(); // 커넥션 풀에서 커넥션을 가져옴
-                threadLocalConnection.set(connection);
+                long waitStartNanos = System.nanoTime();
+                // 커넥션 풀에서 레인 몫에 맞춰 커넥션을 가져옴. 데드라인이나 connectionTimeout 이 있으면 남은 시간만큼만 기다린다.
+                Connection connection;
+                try {
+                    connection = acquire(lane, waitNanos(threadLocalDeadline.get()));
+                } catch (SQLException e) {
+                    releasePermit(limiter);
+                    throw e;
+                }
+                if (connection == null) {
+                    releasePermit(limiter);
+                    throw new SQLTimeoutException("커넥션을 기다리는 중 데드라인을 넘겼습니다.");
+                }
+                scope = new ConnectionScope(connection, limiter, System.nanoTime() - waitStartNanos);
+                bind(scope);
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                releasePermit(limiter);
+                Thread.currentThread().interrupt();
+                throw new SQLException("커넥션을 기다리는 중 인터럽트되었습니다.", e);
             }
         }
+        Connection connection = scope.getConnection();
         connectionTimestamps.put(connection, System.currentTimeMillis()); // 사용 시간 갱신
         return connection;
     }
 
+    private void bind(ConnectionScope scope) {
+        threadLocalScope.set(scope);
+        boundScopes.put(scope.getConnection(), scope);
+    }
+
+    // 가장 바깥 범위가 나올 때만 풀에 돌려준다. 이미 반납했거나 회수된 커넥션이면 아무것도 하지 않는다.
     public void releaseConnection(Connection conn) {
-        if (conn != null) {
-            connectionPool.offer(conn);
-            threadLocalConnection.remove();
+        if (conn == null) {
+            return;
+        }
+        ConnectionScope scope = boundScopes.get(conn);
+        if (scope == null) {
+            ConnectionScope stale = threadLocalScope.get();
+            if (stale != null && stale.getConnection() == conn) {
+                threadLocalScope.remove();
+            }
+            return;
+        }
+        if (scope.exit() > 0) {
+            return; // 바깥(트랜잭션 등)에서 아직 쓰고 있다.
+        }
+        if (threadLocalScope.get() == scope) {
+            threadLocalScope.remove();
+        }
+        if (boundScopes.remove(conn, scope)) {
             connectionTimestamps.remove(conn); // 사용 시간 정보 제거
+            releasePermit(scope.getLimiter());
+            returnToPool(conn);
+        }
+    }
+
+    /**
+     * 범위 안의 쿼리는 모두 같은 커넥션을 쓰고, 범위를 나가면 예외가 나도 커넥션을 돌려준다.
+     * 범위 안에서 startTransaction 한 트랜잭션도 이 커넥션에서 돈다.
+     */
+    public <T> T withConnection(SqlWork<T> work) throws SQLException {
+        Connection conn = getConnection();
+        try {
+            return work.run();
+        } finally {
+            releaseConnection(conn);
+        }
+    }
+
+    private void releasePermit(ConcurrencyLimiter limiter) {
+        if (limiter != null) {
+            limiter.release();
+        }
+    }
+
+    // 쓰레드에 묶지 않고 풀에서 커넥션을 직접 빌리고 돌려준다. (Publisher 처럼 여러 쓰레드를 오가는 경우)
+    // getConnection 처럼 deadline 이나 connectionTimeout 이 지나면 SQLTimeoutException 으로 끝난다.
+    Connection takeFromPool(ConnectionLane lane, Deadline deadline) throws InterruptedException, SQLException {
+        Connection connection = acquire(lane, waitNanos(deadline));
+        if (connection == null) {
+            throw new SQLTimeoutException("커넥션을 기다리는 중 데드라인을 넘겼습니다.");
         }
+        return connection;
+    }
+
+    // 커넥션을 기다릴 수 있는 시간. 데드라인과 connectionTimeout 이 모두 없으면 -1 (끝까지 기다림)
+    private long waitNanos(Deadline deadline) {
+        if (config.getConnectionTimeout() != null) {
+            deadline = Deadline.after(config.getConnectionTimeout()).min(deadline);
+        }
+        return deadline == null ? -1 : Math.max(0, deadline.remainingNanos());
+    }
+
+    // timeoutNanos 가 음수면 끝까지 기다린다. 시간 안에 못 받으면 null
+    private Connection acquire(ConnectionLane lane, long timeoutNanos) throws InterruptedException, SQLException {
+        if (acquireGate == null) {
+            return connectionPool.poll(lane, timeoutNanos);
+        }
+        return acquireGate.acquire(connectionPool, lane, timeoutNanos);
+    }
+
+    void returnToPool(Connection conn) {
+        if (acquireGate == null) {
+            connectionPool.offer(conn);
+        } else {
+            acquireGate.release(connectionPool, conn);
+        }
+    }
+
+    // 풀과 무관한 전용 커넥션. 닫는 것은 받아 간 쪽의 책임이다.
+    Connection openDedicatedConnection() throws SQLException {
+        return createConnection();
     }
 
 
@@ -167,11 +772,9 @@ public class SimpleDb {
             conn = getConnection();
             stmt = conn.createStatement();
 
-            if (devMode) {
-                System.out.println(sql);
-            }
-
-            stmt.executeUpdate(sql);
+            Statement statement = stmt;
+            execute(statement, sql, NO_PARAMETERS, context -> context.updated(statement.executeUpdate(sql)));
+            notifyWrite(conn, sql);
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -198,11 +801,9 @@ public class SimpleDb {
                 pstmt.setObject(i + 1, params[i]);
             }
 
-            if (devMode) {
-                System.out.println(sql);
-            }
-
-            pstmt.executeUpdate();
+            PreparedStatement statement = pstmt;
+            execute(statement, sql, params, context -> context.updated(statement.executeUpdate()));
+            notifyWrite(conn, sql);
 
         } catch (SQLException e) {
             e.printStackTrace();
@@ -238,7 +839,7 @@ public class SimpleDb {
             Column column = field.getAnnotation(Column.class);
 
             if (column != null) {
-                ddl.append(field.getName()).append(" ").append(column.type());
+                ddl.append(field.getName()).append(" ").append(dialect.columnType(column.type()));
 
                 if (!column.nullable()) {
                     ddl.append(" NOT NULL");
@@ -266,170 +867,501 @@ public class SimpleDb {
     }
 
 
+    // 여러 행을 INSERT 문 몇 개로 묶어 넣는다. 문 하나의 크기는 dialect 의 파라미터 한도를 넘지 않는다.
+    public long bulkInsert(String table, List<String> columns, List<Object[]> rows) throws SQLException {
+        int rowsPerStatement = Math.max(1, Math.min(BULK_INSERT_MAX_ROWS, dialect.maxParameters() / columns.size()));
+        long inserted = 0;
+
+        Connection conn = getConnection();
+        try {
+            for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+                List<Object[]> chunk = rows.subList(from, Math.min(rows.size(), from + rowsPerStatement));
+                String sql = dialect.multiRowInsertSql(table, columns, chunk.size());
+
+                Object[] parameters = new Object[chunk.size() * columns.size()];
+                int index = 0;
+                for (Object[] row : chunk) {
+                    if (row.length != columns.size()) {
+                        throw new IllegalArgumentException("행의 값 개수가 컬럼 수와 다릅니다: " + row.length);
+                    }
+                    for (Object value : row) {
+                        parameters[index++] = value;
+                    }
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < parameters.length; i++) {
+                        pstmt.setObject(i + 1, parameters[i]);
+                    }
+                    inserted += execute(pstmt, sql, parameters, context -> context.updated(pstmt.executeUpdate()));
+                }
+            }
+        } finally {
+            markFiltersStale(conn, table);
+            releaseConnection(conn);
+        }
+        return inserted;
+    }
+
+    /**
+     * id 가 없으면 INSERT 하고 생성된 id 를 엔티티에 채운다. id 가 있으면 update 와 같다.
+     * INSERT 는 값이 있는 @Column 필드만 넣는다. (나머지는 테이블 기본값)
+     * 쓰기에 실패하면 0 을 돌려주지 않고 SQLException 을 그대로 던진다.
+     */
+    public <T> long save(T entity) throws SQLException {
+        EntityMeta meta = entityMeta(entity);
+        if (meta.getId(entity) != null) {
+            return update(entity);
+        }
+
+        Object[] values = meta.read(entity);
+        long mask = EntityMeta.nonNullMask(values);
+        Object[] parameters;
+        Long version = null;
+        if (meta.hasVersion()) {
+            version = meta.getVersion(entity);
+            parameters = EntityMeta.select(values, mask, version == null ? 0L : version);
+        } else {
+            parameters = EntityMeta.select(values, mask);
+        }
+        long id = queryWithGeneratedKeys(meta.insertSql(mask), parameters);
+        // INSERT 가 실패하면 위에서 던지므로, 엔티티의 버전은 들어간 뒤에만 채운다.
+        if (meta.hasVersion() && version == null) {
+            meta.setVersion(entity, 0);
+        }
+        if (id == -1) {
+            return 0;
+        }
+        meta.setId(entity, id);
+        entitySnapshots.put(entity, values);
+        return 1;
+    }
+
+    /**
+     * 읽었을 때(또는 마지막으로 save 했을 때)와 달라진 @Column 필드만 UPDATE 한다.
+     * 바뀐 필드가 없으면 쿼리를 보내지 않고 0 을 돌려준다. 스냅샷이 없는 엔티티(Sql.track 없이 읽은 엔티티)는 모든 필드를 쓴다.
+     * 바뀐 필드 조합마다 만든 UPDATE 문은 캐시해서 같은 문장으로 다시 쓴다.
+     * <p>
+     * @Version 필드가 있으면 읽었을 때의 버전을 조건으로 걸고 버전을 1 올린다.
+     * 바뀐 행이 없으면(그 사이 다른 쪽이 먼저 고쳤으면) OptimisticLockException 을 던진다.
+     */
+    public <T> long update(T entity) throws SQLException {
+        EntityMeta meta = entityMeta(entity);
+        Object id = meta.getId(entity);
+        if (id == null) {
+            throw new IllegalArgumentException("id 가 없는 엔티티는 update 할 수 없습니다: " + entity.getClass().getName());
+        }
+
+        Object[] values = meta.read(entity);
+        Object[] snapshot = entitySnapshots.get(entity);
+        long mask = snapshot == null ? EntityMeta.allMask(meta.columnCount()) : EntityMeta.changedMask(snapshot, values);
+        if (mask == 0) {
+            return 0;
+        }
+
+        if (!meta.hasVersion()) {
+            long updated = queryUpdate(meta.updateSql(mask), EntityMeta.select(values, mask, id));
+            if (updated > 0) {
+                entitySnapshots.put(entity, values);
+            }
+            return updated;
+        }
+
+        Long version = meta.getVersion(entity);
+        if (version == null) {
+            throw new IllegalArgumentException("@Version 값이 없는 엔티티는 update 할 수 없습니다: " + entity.getClass().getName());
+        }
+        long updated = queryUpdate(meta.updateSql(mask), EntityMeta.select(values, mask, version + 1, id, version));
+        if (updated == 0) {
+            throw new OptimisticLockException(meta.getTable(), id, version);
+        }
+        meta.setVersion(entity, version + 1);
+        entitySnapshots.put(entity, values);
+        return updated;
+    }
+
+    private static EntityMeta entityMeta(Object entity) {
+        EntityMeta meta = EntityMeta.of(entity.getClass());
+        if (!meta.isEntity()) {
+            throw new IllegalArgumentException("id 와 @Column 필드가 있어야 저장할 수 있습니다: " + entity.getClass().getName());
+        }
+        return meta;
+    }
+
+    // 시간 예산을 넘겨 취소된 쿼리는 잘린 결과와 구분되도록 호출자에게 넘긴다. 다른 오류는 예전처럼 출력만 한다.
+    static void propagateTimeout(SQLException e) throws SQLTimeoutException {
+        if (e instanceof SQLTimeoutException) {
+            throw (SQLTimeoutException) e;
+        }
+        e.printStackTrace();
+    }
+
+    // 읽어 온 엔티티의 현재 값을 남긴다. save 대상이 아닌 클래스는 건너뛴다.
+    void track(Object entity) {
+        EntityMeta meta = EntityMeta.of(entity.getClass());
+        if (meta.isEntity()) {
+            entitySnapshots.put(entity, meta.read(entity));
+        }
+    }
+
     public long executeQueryWithGeneratedKeys(String sql, Object[] parameters) throws SQLException {
+        try {
+            return queryWithGeneratedKeys(sql, parameters);
+        } catch (SQLException e) {
+            propagateTimeout(e);
+        }
+        return -1;
+    }
+
+    // executeQueryWithGeneratedKeys 와 같지만 오류를 삼키지 않는다. save 는 이쪽으로 INSERT 한다.
+    long queryWithGeneratedKeys(String sql, Object[] parameters) throws SQLException {
         Connection conn = getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pstmt = dialect.prepareReturningKeys(conn, sql)) {
             for (int i = 0; i < parameters.length; i++) {
                 pstmt.setObject(i + 1, parameters[i]);
             }
-            pstmt.executeUpdate();
-            try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getLong(1);
+            return execute(pstmt, sql, parameters, context -> {
+                context.setRowCount(pstmt.executeUpdate());
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    long id = rs.next() ? rs.getLong(1) : -1L;
+                    if (!existenceFilters.isEmpty()) {
+                        notifyInsert(conn, sql, id, context.getRowCount());
+                    }
+                    return id;
                 }
-            }
-            System.out.println(conn);
-        } catch (SQLException e) {
-            e.printStackTrace();
+            });
         } finally {
-            if (conn != null) {
-                releaseConnection(conn);
-            }
+            releaseConnection(conn);
         }
-        return -1;
     }
 
     public long executeQuery(String sql, Object[] parameters) throws SQLException {
+        try {
+            return queryUpdate(sql, parameters);
+        } catch (SQLException e) {
+            propagateTimeout(e);
+        }
+        return -1;
+    }
 
+    // executeQuery 와 같지만 오류를 삼키지 않는다. update 는 이쪽으로 UPDATE 한다.
+    long queryUpdate(String sql, Object[] parameters) throws SQLException {
         Connection conn = getConnection();
-
         try (PreparedStatement pstmt = prepareStatement(sql, parameters)) {
-            return pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-
+            long updated = execute(pstmt, sql, parameters, context -> context.updated(pstmt.executeUpdate()));
+            notifyWrite(conn, sql);
+            return updated;
         } finally {
-            if (conn != null) {
-                releaseConnection(conn);
-            }
+            releaseConnection(conn);
         }
-        return -1;
     }
 
     public LocalDateTime selectDatetime(String sql) throws SQLException {
-        Connection conn = getConnection();
-        LocalDateTime datetime = null;
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try {
+            return queryDatetime(sql);
+        } catch (SQLException e) {
+            propagateTimeout(e);
+        }
+        return null;
+    }
 
-            if (rs.next()) {
-                Timestamp timestamp = rs.getTimestamp(1);
-                datetime = timestamp.toLocalDateTime();
-            }
+    // 아래 query* 는 select* 와 같지만 오류를 삼키지 않는다. Sql 의 조회는 이쪽으로 실행한다.
+    LocalDateTime queryDatetime(String sql) throws SQLException {
+        Connection conn = getConnection();
+        try (Statement stmt = conn.createStatement()) {
+            return execute(stmt, sql, NO_PARAMETERS, context -> {
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    if (rs.next()) {
+                        context.setRowCount(1);
+                        Timestamp timestamp = rs.getTimestamp(1);
+                        return timestamp.toLocalDateTime();
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            releaseConnection(conn);
+        }
+    }
 
+    public Row selectRow(String sql, Object[] parameters) throws SQLException {
+        try {
+            return queryRow(sql, parameters);
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            if (conn != null) {
-                releaseConnection(conn);
-            }
+            propagateTimeout(e);
         }
-        return datetime;
+        return null;
     }
 
-    public Map<String, Object> selectRow(String sql, Object[] parameters) throws SQLException {
-        Map<String, Object> map = new HashMap<>();
+    Row queryRow(String sql, Object[] parameters) throws SQLException {
         Connection conn = getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-
-            if (rs.next()) { //레코드가 있을 경우
-                for (int i = 1; i <= columnCount; i++) {
-                    //컬럼의 수만큼 모든 데이터를 Map에 넣는다.
-                    String columnName = metaData.getColumnName(i);
-                    Object columnValue = rs.getObject(i);
-                    map.put(columnName, columnValue);
+        try (PreparedStatement pstmt = prepareStatement(sql, parameters)) {
+            return execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) { //레코드가 있을 경우
+                        context.setRowCount(1);
+                        return Row.read(rs, Row.Columns.of(rs.getMetaData()));
+                    }
+                    return null;
                 }
-                return map;
-            } else {
-                return null;
-            }
+            });
+        } finally {
+            releaseConnection(conn);
+        }
+    }
 
+    public List<Row> selectRowsAsRows(String sql, Object[] parameters) throws SQLException {
+        try {
+            return queryRowsAsRows(sql, parameters);
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
+            propagateTimeout(e);
+        }
+        return new ArrayList<>();
+    }
 
+    List<Row> queryRowsAsRows(String sql, Object[] parameters) throws SQLException {
+        List<Row> result = new ArrayList<>();
+        Connection conn = getConnection();
+        try (PreparedStatement pstmt = prepareStatement(sql, parameters)) {
+            execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    // 컬럼 테이블은 결과 집합당 한 번만 만들고 모든 행이 공유한다.
+                    Row.Columns columns = Row.Columns.of(rs.getMetaData());
+                    while (rs.next()) {
+                        result.add(Row.read(rs, columns));
+                    }
+                }
+                return context.read(result.size());
+            });
+        } finally {
             releaseConnection(conn);
+        }
+        return result;
+    }
 
+    public Stream<Row> streamRows(String sql, Object[] parameters) throws SQLException {
+        Connection conn = getConnection();
+        PreparedStatement pstmt = null;
+        try {
+            pstmt = prepareStatement(sql, parameters);
+            PreparedStatement statement = pstmt;
+            // 스트림은 실행 이후에 읽으므로 실행 시점까지만 기록된다.
+            ResultSet rs = execute(statement, sql, parameters, context -> statement.executeQuery());
+            Row.Columns columns = Row.Columns.of(rs.getMetaData());
+
+            Spliterator<Row> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Row> action) {
+                    try {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        action.accept(Row.read(rs, columns));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            };
+
+            // 스트림을 닫을 때 ResultSet, Statement 를 닫고 커넥션을 반납한다.
+            return StreamSupport.stream(spliterator, false).onClose(() -> {
+                try {
+                    rs.close();
+                    statement.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                } finally {
+                    releaseConnection(conn);
+                }
+            });
+        } catch (SQLException e) {
+            if (pstmt != null) {
+                pstmt.close();
+            }
+            releaseConnection(conn);
+            throw e;
         }
-        return null;
     }
 
     public <T> List<T> selectRows(Class<T> clazz, String sql, Object[] parameters) throws SQLException {
+        try {
+            return queryRows(clazz, sql, parameters, false);
+        } catch (SQLException e) {
+            propagateTimeout(e);
+        }
+        return new ArrayList<>();
+    }
+
+    // track 이면 읽은 엔티티마다 스냅샷을 남긴다. (Sql.track)
+    <T> List<T> queryRows(Class<T> clazz, String sql, Object[] parameters, boolean track) throws SQLException {
         List<T> result = new ArrayList<>();
-        try (PreparedStatement pstmt = prepareStatement(sql, parameters);
-             ResultSet rs = pstmt.executeQuery()) {
+        Connection conn = getConnection();
+        try (PreparedStatement pstmt = prepareStatement(sql, parameters)) {
+            execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    EntityMapper<T> mapper = new EntityMapper<>(clazz, rs.getMetaData());
+
+                    while (rs.next()) {
+                        T entity = mapper.map(rs);
+                        if (track) {
+                            track(entity);
+                        }
+                        result.add(entity);
+                    }
+                } catch (ReflectiveOperationException e) {
+                    throw new SQLException("엔티티로 변환하지 못했습니다: " + clazz.getName(), e);
+                }
+                return context.read(result.size());
+            });
+        } finally {
+            releaseConnection(conn);
+        }
+        return result;
+    }
 
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
+    public <T> Flow.Publisher<T> publish(Class<T> clazz, String sql, Object[] parameters, Executor executor) {
+        return publish(clazz, sql, parameters, null, executor);
+    }
 
-            while (rs.next()) {
-                T instance = clazz.getDeclaredConstructor().newInstance();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object columnValue = rs.getObject(i);
+    // timeout 은 구독할 때부터 잰다. null 이면 구독한 쓰레드의 데드라인만 따른다.
+    public <T> Flow.Publisher<T> publish(Class<T> clazz, String sql, Object[] parameters, Duration timeout, Executor executor) {
+        return new ResultSetPublisher<>(this, clazz, sql, parameters, publisherFetchSize(), timeout, executor);
+    }
 
-                    Field field = clazz.getDeclaredField(columnName);
-                    field.setAccessible(true);
-                    field.set(instance, columnValue);
+    // 구독은 커넥션을 끝까지 쥐고 있으므로 드라이버가 실제로 나눠 받는 크기를 쓴다.
+    // 커서 fetch 로 나눠 받을 수 있으면 그 크기로, 아니면 writeJson 처럼 행 단위 스트리밍으로 받는다.
+    // 드라이버가 fetch size 를 무시하면 executeQuery 에서 결과를 모두 메모리에 올려 request(n) 이 의미가 없어진다.
+    int publisherFetchSize() {
+        int fetchSize = dialect.adaptiveFetchSize(ResultSetPublisher.DEFAULT_FETCH_SIZE, config);
+        return fetchSize > 0 ? fetchSize : dialect.streamingFetchSize();
+    }
+
+    public long writeJson(String sql, Object[] parameters, JsonGenerator generator) throws SQLException, IOException {
+        Connection conn = getConnection();
+        // 응답 도중 실패하면 잘린 JSON 이 나가므로 예외를 삼키지 않고 호출자에게 넘긴다.
+        try (PreparedStatement pstmt = prepareStreamingStatement(sql, parameters)) {
+            return execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return context.read(JsonRowWriter.write(rs, generator));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-                result.add(instance);
-            }
-        } catch (SQLException | InstantiationException | IllegalAccessException | NoSuchMethodException |
-                 InvocationTargetException | NoSuchFieldException e) {
-            e.printStackTrace();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            releaseConnection(conn);
         }
-        return result;
     }
 
-    public String selectString(String sql, Object[] parameters) throws SQLException {
+    // 드라이버 쪽에도 결과를 쌓지 않도록 스트리밍으로 읽으면서 바로 힙 밖 버퍼에 옮긴다.
+    public OffHeapResult selectOffHeap(String sql, Object[] parameters) throws SQLException {
         Connection conn = getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+        try (PreparedStatement pstmt = prepareStreamingStatement(sql, parameters)) {
+            return execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    OffHeapResult result = OffHeapResult.read(rs);
+                    context.read(result.size());
+                    return result;
+                }
+            });
+        } finally {
+            releaseConnection(conn);
+        }
+    }
 
-            return rs.next() ? rs.getString(1) : null;
+    // 한도를 넘으면 임시 파일로 넘긴다. 한도 안이면 힙 버퍼에 그대로 둔다.
+    public SpillableResult selectSpillable(String sql, Object[] parameters, long rowThreshold, long byteThreshold) throws SQLException {
+        Connection conn = getConnection();
+        try (PreparedStatement pstmt = prepareStreamingStatement(sql, parameters)) {
+            return execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    SpillableResult result = SpillableResult.read(rs, rowThreshold, byteThreshold);
+                    context.read(result.size());
+                    return result;
+                }
+            });
+        } finally {
+            releaseConnection(conn);
+        }
+    }
 
+    public String selectString(String sql, Object[] parameters) throws SQLException {
+        try {
+            return queryString(sql, parameters);
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            if (conn != null) {
-                releaseConnection(conn);
-            }
+            propagateTimeout(e);
         }
         return null;
     }
 
-    public Long selectLong(String sql, Object[] parameters) throws SQLException {
+    String queryString(String sql, Object[] parameters) throws SQLException {
         Connection conn = getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)){
-
-            for (int i = 0; i < parameters.length; i++) {
-                pstmt.setObject(i + 1, parameters[i]);
-            }
-            try(ResultSet rs = pstmt.executeQuery()) {
-                return rs.next() ? rs.getLong(1) : null;
-            }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
+        try (PreparedStatement pstmt = prepareStatement(sql, parameters)) {
+            return execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        context.setRowCount(1);
+                        return rs.getString(1);
+                    }
+                    return null;
+                }
+            });
         } finally {
             releaseConnection(conn);
         }
+    }
+
+    public Long selectLong(String sql, Object[] parameters) throws SQLException {
+        try {
+            return queryLong(sql, parameters);
+        } catch (SQLException e) {
+            propagateTimeout(e);
+        }
         return null;
     }
 
-    public List<Long> selectLongs(String sql, Object[] parameters) {
-        List<Long> result = new ArrayList<>();
-        try (PreparedStatement pstmt = prepareStatement(sql, parameters);
-             ResultSet rs = pstmt.executeQuery()) {
+    Long queryLong(String sql, Object[] parameters) throws SQLException {
+        Connection conn = getConnection();
+        try (PreparedStatement pstmt = prepareStatement(sql, parameters)) {
+            return execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        context.setRowCount(1);
+                        return rs.getLong(1);
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            releaseConnection(conn);
+        }
+    }
 
-            while (rs.next()) {
-                result.add(rs.getLong(1));
-            }
+    public List<Long> selectLongs(String sql, Object[] parameters) throws SQLException {
+        try {
+            return queryLongs(sql, parameters);
         } catch (SQLException e) {
-            e.printStackTrace();
+            propagateTimeout(e);
+        }
+        return new ArrayList<>();
+    }
+
+    List<Long> queryLongs(String sql, Object[] parameters) throws SQLException {
+        List<Long> result = new ArrayList<>();
+        Connection conn = getConnection();
+        try (PreparedStatement pstmt = prepareStatement(sql, parameters)) {
+            execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        result.add(rs.getLong(1));
+                    }
+                }
+                return context.read(result.size());
+            });
+        } finally {
+            releaseConnection(conn);
         }
         return result;
     }
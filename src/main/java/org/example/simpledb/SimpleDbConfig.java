@@ -0,0 +1,452 @@
+package org.example.simpledb;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * SimpleDb 설정. 프로필로 관련 값을 한 번에 정하고, 빌더에서 직접 준 값이 프로필보다 우선한다.
+ * <pre>
+ * SimpleDbConfig config = SimpleDbConfig.builder()
+ *         .host("localhost").username("wave").password("0913").dbName("simpleDb__test")
+ *         .profile("oltp")
+ *         .poolSize(20)
+ *         .build();
+ * SimpleDb simpleDb = new SimpleDb(config);
+ * </pre>
+ * 아무 프로필도 고르지 않으면 예전 생성자와 같게 동작한다. (커넥션 1개, 시간 제한 없음, 드라이버 기본값)
+ */
+public class SimpleDbConfig {
+
+    public enum Profile {
+
+        // 짧은 쿼리가 많다. 서버 prepared statement 와 캐시로 파싱 비용을 줄이고 시간 제한을 짧게 둔다.
+        OLTP("oltp") {
+            @Override
+            void applyTo(Builder builder) {
+                builder.poolSize(10)
+                        .connectionTimeout(Duration.ofSeconds(2))
+                        .queryTimeout(Duration.ofSeconds(5))
+                        .serverPreparedStatements(true)
+                        .statementCache(true)
+                        .statementCacheSize(250)
+                        .statementCacheSqlLimit(2048);
+            }
+        },
+
+        // 대량 INSERT. 배치를 여러 행 INSERT 로 바꿔 왕복을 줄이고, 큰 요청은 압축해서 보낸다.
+        BULK_LOAD("bulk-load") {
+            @Override
+            void applyTo(Builder builder) {
+                builder.poolSize(4)
+                        .connectionTimeout(Duration.ofSeconds(30))
+                        .serverPreparedStatements(false)
+                        .rewriteBatchedStatements(true)
+                        .compression(true);
+            }
+        },
+
+        // 큰 결과를 읽는다. 커서로 fetchSize 만큼씩 받아 클라이언트 메모리를 아끼고, 시간 제한은 넉넉히 둔다.
+        ANALYTICS("analytics") {
+            @Override
+            void applyTo(Builder builder) {
+                builder.poolSize(4)
+                        .connectionTimeout(Duration.ofSeconds(30))
+                        .queryTimeout(Duration.ofMinutes(5))
+                        .fetchSize(1_000)
+                        .serverPreparedStatements(true)
+                        .cursorFetch(true)
+                        .compression(true);
+            }
+        };
+
+        private final String name;
+
+        Profile(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public static Profile of(String name) {
+            for (Profile profile : values()) {
+                if (profile.name.equals(name.toLowerCase(Locale.ROOT))) {
+                    return profile;
+                }
+            }
+            throw new IllegalArgumentException("알 수 없는 프로필입니다: " + name);
+        }
+
+        abstract void applyTo(Builder builder);
+    }
+
+    private final Dialect dialect;
+    private final String host;
+    private final String username;
+    private final String password;
+    private final String dbName;
+    private final Profile profile;
+
+    private final int poolSize;
+    private final boolean virtualThreads;
+    private final Duration connectionTimeout;
+    private final Duration queryTimeout;
+    private final Duration leakTimeout;
+    private final int fetchSize;
+    private final boolean adaptiveFetchSize;
+
+    private final boolean serverPreparedStatements;
+    private final boolean statementCache;
+    private final int statementCacheSize;
+    private final int statementCacheSqlLimit;
+    private final boolean rewriteBatchedStatements;
+    private final boolean cursorFetch;
+    private final boolean compression;
+
+    private SimpleDbConfig(Builder builder) {
+        this.dialect = builder.dialect;
+        this.host = builder.host;
+        this.username = builder.username;
+        this.password = builder.password;
+        this.dbName = builder.dbName;
+        this.profile = builder.profile;
+        this.poolSize = builder.poolSize;
+        this.virtualThreads = builder.virtualThreads;
+        this.connectionTimeout = builder.connectionTimeout;
+        this.queryTimeout = builder.queryTimeout;
+        this.leakTimeout = builder.leakTimeout;
+        this.fetchSize = builder.fetchSize;
+        this.adaptiveFetchSize = builder.adaptiveFetchSize;
+        this.serverPreparedStatements = builder.serverPreparedStatements;
+        this.statementCache = builder.statementCache;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.statementCacheSqlLimit = builder.statementCacheSqlLimit;
+        this.rewriteBatchedStatements = builder.rewriteBatchedStatements;
+        this.cursorFetch = builder.cursorFetch;
+        this.compression = builder.compression;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private void validate() {
+        if (dbName == null || dbName.isBlank()) {
+            throw new IllegalArgumentException("dbName 은 비어 있을 수 없습니다.");
+        }
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize 는 1 이상이어야 합니다: " + poolSize);
+        }
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize 는 0 이상이어야 합니다: " + fetchSize);
+        }
+        requirePositive("connectionTimeout", connectionTimeout);
+        requirePositive("queryTimeout", queryTimeout);
+        requirePositive("leakTimeout", leakTimeout);
+        if (statementCache && (statementCacheSize < 1 || statementCacheSqlLimit < 1)) {
+            throw new IllegalArgumentException("statementCache 를 켜면 statementCacheSize 와 statementCacheSqlLimit 는 1 이상이어야 합니다.");
+        }
+        // MySQL 드라이버는 서버 prepared statement 에서만 커서로 읽는다.
+        if (cursorFetch && !serverPreparedStatements) {
+            throw new IllegalArgumentException("cursorFetch 는 serverPreparedStatements 와 함께 켜야 합니다.");
+        }
+        if (cursorFetch && fetchSize == 0) {
+            throw new IllegalArgumentException("cursorFetch 를 켜면 fetchSize 를 1 이상으로 정해야 합니다.");
+        }
+    }
+
+    private static void requirePositive(String name, Duration value) {
+        if (value != null && (value.isNegative() || value.isZero())) {
+            throw new IllegalArgumentException(name + " 은 0 보다 커야 합니다: " + value);
+        }
+    }
+
+    // 시작할 때 남기는 설정 요약. 비밀번호는 가린다.
+    public String describe() {
+        return "== SimpleDb 설정 ==" +
+                "\n  url: " + dialect.url(host, dbName) +
+                "\n  username: " + username + ", password: " + (password == null || password.isEmpty() ? "(없음)" : "****") +
+                "\n  profile: " + (profile == null ? "(없음)" : profile.getName()) +
+                "\n  poolSize: " + poolSize +
+                ", virtualThreads: " + virtualThreads +
+                ", connectionTimeout: " + describe(connectionTimeout) +
+                ", queryTimeout: " + describe(queryTimeout) +
+                ", leakTimeout: " + describe(leakTimeout) +
+                "\n  fetchSize: " + (fetchSize == 0 ? "(드라이버 기본값)" : fetchSize) +
+                ", adaptiveFetchSize: " + adaptiveFetchSize +
+                ", serverPreparedStatements: " + serverPreparedStatements +
+                ", statementCache: " + (statementCache ? statementCacheSize + "개 / SQL " + statementCacheSqlLimit + "자" : "false") +
+                "\n  rewriteBatchedStatements: " + rewriteBatchedStatements +
+                ", cursorFetch: " + cursorFetch +
+                ", compression: " + compression;
+    }
+
+    private static String describe(Duration duration) {
+        return duration == null ? "(제한 없음)" : duration.toString();
+    }
+
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getDbName() {
+        return dbName;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public Duration getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public Duration getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public Duration getLeakTimeout() {
+        return leakTimeout;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public boolean isAdaptiveFetchSize() {
+        return adaptiveFetchSize;
+    }
+
+    public boolean isServerPreparedStatements() {
+        return serverPreparedStatements;
+    }
+
+    public boolean isStatementCache() {
+        return statementCache;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public int getStatementCacheSqlLimit() {
+        return statementCacheSqlLimit;
+    }
+
+    public boolean isRewriteBatchedStatements() {
+        return rewriteBatchedStatements;
+    }
+
+    public boolean isCursorFetch() {
+        return cursorFetch;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public static class Builder {
+
+        private Dialect dialect;
+        private String host;
+        private String username;
+        private String password;
+        private String dbName;
+        private Profile profile;
+
+        // null 이면 아직 정하지 않은 값이다. build 에서 기본값 → 프로필 → 직접 준 값 순으로 채운다.
+        private Integer poolSize;
+        private Boolean virtualThreads;
+        private Duration connectionTimeout;
+        private Duration queryTimeout;
+        private Duration leakTimeout;
+        private Integer fetchSize;
+        private Boolean adaptiveFetchSize;
+        private Boolean serverPreparedStatements;
+        private Boolean statementCache;
+        private Integer statementCacheSize;
+        private Integer statementCacheSqlLimit;
+        private Boolean rewriteBatchedStatements;
+        private Boolean cursorFetch;
+        private Boolean compression;
+
+        private Builder() {
+        }
+
+        public Builder dialect(Dialect dialect) {
+            this.dialect = dialect;
+            return this;
+        }
+
+        public Builder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        public Builder username(String username) {
+            this.username = username;
+            return this;
+        }
+
+        public Builder password(String password) {
+            this.password = password;
+            return this;
+        }
+
+        public Builder dbName(String dbName) {
+            this.dbName = dbName;
+            return this;
+        }
+
+        public Builder profile(String name) {
+            return profile(Profile.of(name));
+        }
+
+        public Builder profile(Profile profile) {
+            this.profile = profile;
+            return this;
+        }
+
+        public Builder poolSize(int poolSize) {
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        // 가상 쓰레드 수천 개가 함께 쓰는 경우. 커넥션을 기다리는 쓰레드를 풀 앞의 세마포어에 줄 세운다.
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        // 풀에서 커넥션을 기다리는 최대 시간
+        public Builder connectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+            return this;
+        }
+
+        public Builder queryTimeout(Duration queryTimeout) {
+            this.queryTimeout = queryTimeout;
+            return this;
+        }
+
+        // 이 시간보다 오래 반납되지 않은 커넥션은 풀로 회수한다.
+        public Builder leakTimeout(Duration leakTimeout) {
+            this.leakTimeout = leakTimeout;
+            return this;
+        }
+
+        public Builder fetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+            return this;
+        }
+
+        // 쿼리 모양마다 읽은 행 수를 보고 fetch size 를 바꾼다. fetchSize 는 처음 보는 쿼리에 쓰인다.
+        public Builder adaptiveFetchSize(boolean adaptiveFetchSize) {
+            this.adaptiveFetchSize = adaptiveFetchSize;
+            return this;
+        }
+
+        public Builder serverPreparedStatements(boolean serverPreparedStatements) {
+            this.serverPreparedStatements = serverPreparedStatements;
+            return this;
+        }
+
+        public Builder statementCache(boolean statementCache) {
+            this.statementCache = statementCache;
+            return this;
+        }
+
+        public Builder statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        public Builder statementCacheSqlLimit(int statementCacheSqlLimit) {
+            this.statementCacheSqlLimit = statementCacheSqlLimit;
+            return this;
+        }
+
+        public Builder rewriteBatchedStatements(boolean rewriteBatchedStatements) {
+            this.rewriteBatchedStatements = rewriteBatchedStatements;
+            return this;
+        }
+
+        public Builder cursorFetch(boolean cursorFetch) {
+            this.cursorFetch = cursorFetch;
+            return this;
+        }
+
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        public SimpleDbConfig build() {
+            Builder resolved = new Builder()
+                    .dialect(dialect == null ? new MySqlDialect() : dialect)
+                    .host(host)
+                    .username(username)
+                    .password(password)
+                    .dbName(dbName)
+                    .profile(profile)
+                    .poolSize(1)
+                    .virtualThreads(false)
+                    .leakTimeout(Duration.ofSeconds(30))
+                    .fetchSize(0)
+                    .adaptiveFetchSize(true)
+                    .serverPreparedStatements(false)
+                    .statementCache(false)
+                    .statementCacheSize(25)
+                    .statementCacheSqlLimit(256)
+                    .rewriteBatchedStatements(false)
+                    .cursorFetch(false)
+                    .compression(false);
+            if (profile != null) {
+                profile.applyTo(resolved);
+            }
+            resolved.overrideWith(this);
+
+            SimpleDbConfig config = new SimpleDbConfig(resolved);
+            config.validate();
+            return config;
+        }
+
+        private void overrideWith(Builder explicit) {
+            if (explicit.poolSize != null) poolSize = explicit.poolSize;
+            if (explicit.virtualThreads != null) virtualThreads = explicit.virtualThreads;
+            if (explicit.connectionTimeout != null) connectionTimeout = explicit.connectionTimeout;
+            if (explicit.queryTimeout != null) queryTimeout = explicit.queryTimeout;
+            if (explicit.leakTimeout != null) leakTimeout = explicit.leakTimeout;
+            if (explicit.fetchSize != null) fetchSize = explicit.fetchSize;
+            if (explicit.adaptiveFetchSize != null) adaptiveFetchSize = explicit.adaptiveFetchSize;
+            if (explicit.serverPreparedStatements != null) serverPreparedStatements = explicit.serverPreparedStatements;
+            if (explicit.statementCache != null) statementCache = explicit.statementCache;
+            if (explicit.statementCacheSize != null) statementCacheSize = explicit.statementCacheSize;
+            if (explicit.statementCacheSqlLimit != null) statementCacheSqlLimit = explicit.statementCacheSqlLimit;
+            if (explicit.rewriteBatchedStatements != null) rewriteBatchedStatements = explicit.rewriteBatchedStatements;
+            if (explicit.cursorFetch != null) cursorFetch = explicit.cursorFetch;
+            if (explicit.compression != null) compression = explicit.compression;
+        }
+    }
+}
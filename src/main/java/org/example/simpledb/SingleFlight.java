@@ -0,0 +1,78 @@
+package org.example.simpledb;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 같은 키로 동시에 들어온 읽기를 한 번의 실행으로 합친다.
+ * <p>
+ * 먼저 온 쓰레드가 실제로 실행하고, 그 사이에 같은 키로 온 쓰레드는 결과를 기다렸다가 같은 값을 받는다.
+ * 실행이 끝나면 키를 지우므로, 그 뒤에 온 호출은 다시 실행한다. (결과를 캐시하지 않는다)
+ * 기다리는 쪽은 자기 쓰레드의 데드라인까지만 기다린다.
+ */
+final class SingleFlight {
+
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    <T> T run(Object key, Deadline deadline, SqlWork<T> work) throws SQLException {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalescedCount.increment();
+            return (T) await(running, deadline);
+        }
+
+        try {
+            T result = work.run();
+            inFlight.remove(key, mine);
+            mine.complete(result);
+            return result;
+        } catch (SQLException | RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    private static Object await(CompletableFuture<Object> running, Deadline deadline) throws SQLException {
+        try {
+            if (deadline == null) {
+                return running.get();
+            }
+            return running.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new SQLTimeoutException("함께 기다리던 쿼리가 데드라인 안에 끝나지 않았습니다.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("함께 기다리던 쿼리를 기다리는 중 인터럽트되었습니다.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // 리더가 시간 예산을 넘긴 것도 기다린 쪽에게는 타임아웃이라 종류를 지켜서 넘긴다.
+            if (cause instanceof SQLTimeoutException failure) {
+                throw new SQLTimeoutException("함께 기다리던 쿼리가 실패했습니다: " + failure.getMessage(),
+                        failure.getSQLState(), failure.getErrorCode(), failure);
+            }
+            if (cause instanceof SQLException failure) {
+                throw new SQLException("함께 기다리던 쿼리가 실패했습니다: " + failure.getMessage(),
+                        failure.getSQLState(), failure.getErrorCode(), failure);
+            }
+            if (cause instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw (Error) cause;
+        }
+    }
+}
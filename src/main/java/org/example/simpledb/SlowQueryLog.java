@@ -0,0 +1,251 @@
+package org.example.simpledb;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * threshold 를 넘긴 쿼리를 한 건씩 남기는 인터셉터.
+ * <p>
+ * 쿼리 쓰레드는 큐에 넣기만 하고, 출력과 EXPLAIN 은 별도 쓰레드가 한다. 큐가 가득 차면 버리고 개수만 센다.
+ * 출력 쓰레드는 SqlLog 처럼 처음 느린 쿼리가 들어올 때 시작하고, 큐가 비면 다음 항목이 들어올 때까지 잠든다.
+ * EXPLAIN 은 같은 fingerprint 당 explainInterval 에 한 번만, 풀과 별개인 전용 커넥션으로 실행한다.
+ * <pre>
+ * SlowQueryLog slowQueryLog = new SlowQueryLog(simpleDb, Duration.ofMillis(200), System.err);
+ * simpleDb.addInterceptor(slowQueryLog);
+ * </pre>
+ */
+public class SlowQueryLog implements StatementInterceptor, AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final SimpleDb simpleDb;
+    private final long thresholdNanos;
+    private final PrintStream out;
+
+    private volatile long explainIntervalNanos = TimeUnit.MINUTES.toNanos(1);
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<String, Long> lastExplainNanos = new ConcurrentHashMap<>();
+    private final LongAdder droppedCount = new LongAdder();
+    private volatile Thread writer; // 처음 enqueue 할 때 시작한다
+    private final AtomicBoolean idle = new AtomicBoolean(); // writer 가 잠들려 한다
+
+    private volatile boolean closed;
+
+    private Connection explainConnection; // writer 쓰레드에서만 사용
+
+    public SlowQueryLog(SimpleDb simpleDb, Duration threshold, PrintStream out) {
+        this.simpleDb = simpleDb;
+        this.thresholdNanos = threshold.toNanos();
+        this.out = out;
+    }
+
+    // 같은 fingerprint 를 다시 EXPLAIN 하기까지의 간격. 0 이면 매번, 음수면 EXPLAIN 하지 않는다.
+    public void setExplainInterval(Duration explainInterval) {
+        this.explainIntervalNanos = explainInterval.isNegative() ? -1 : explainInterval.toNanos();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    boolean isWriterStarted() {
+        return writer != null;
+    }
+
+    @Override
+    public void afterExecute(StatementContext context, long elapsedNanos) {
+        if (elapsedNanos >= thresholdNanos) {
+            enqueue(new Entry(context, elapsedNanos, null));
+        }
+    }
+
+    @Override
+    public void onError(StatementContext context, SQLException e, long elapsedNanos) {
+        if (elapsedNanos >= thresholdNanos) {
+            enqueue(new Entry(context, elapsedNanos, e.getMessage()));
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        if (writer == null) {
+            startWriter();
+        }
+        if (closed || !queue.offer(entry)) {
+            droppedCount.increment();
+            return;
+        }
+        if (idle.get() && idle.compareAndSet(true, false)) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writer != null || closed) {
+            return;
+        }
+        Thread thread = new Thread(this::drain, "simpledb-slow-query-log");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Entry entry = queue.poll();
+                if (entry != null) {
+                    write(entry);
+                    continue;
+                }
+                if (closed) {
+                    return; // 닫혔고, 큐에 남은 항목을 모두 썼다.
+                }
+                // 잠든다고 알린 뒤 한 번 더 보고 잔다. 그 사이에 넣은 쓰레드는 idle 을 보고 깨운다.
+                idle.set(true);
+                if (queue.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                idle.set(false);
+            }
+        } finally {
+            closeExplainConnection();
+        }
+    }
+
+    private void write(Entry entry) {
+        StringBuilder line = new StringBuilder()
+                .append("[slow query] ").append(entry.loggedAt)
+                .append(String.format(" %.1fms (connection wait %.1fms)", entry.elapsedNanos / 1e6, entry.connectionWaitNanos / 1e6));
+        if (entry.rowCount >= 0) {
+            line.append(" rows=").append(entry.rowCount);
+        }
+        if (entry.error != null) {
+            line.append(" error=").append(entry.error);
+        }
+        line.append("\n  sql: ").append(entry.sql.trim().replaceAll("\\s+", " "))
+                .append("\n  parameters: ").append(Arrays.toString(entry.parameters));
+
+        if (shouldExplain(entry.sql)) {
+            try {
+                for (Row row : explain(entry.sql, entry.parameters)) {
+                    line.append("\n  plan: ").append(row);
+                }
+            } catch (SQLException e) {
+                line.append("\n  plan: EXPLAIN 실패 - ").append(e.getMessage());
+                closeExplainConnection();
+            }
+        }
+
+        out.println(line);
+    }
+
+    // EXPLAIN 은 SELECT / UPDATE / DELETE 만 한다. fingerprint 마다 explainInterval 에 한 번.
+    // QueryStatistics 처럼 fingerprint 수에 상한을 두고, 넘치면 하나의 간격을 같이 쓴다.
+    private boolean shouldExplain(String sql) {
+        long interval = explainIntervalNanos;
+        if (interval < 0) {
+            return false;
+        }
+        String fingerprint = SqlFingerprint.of(sql);
+        if (!(fingerprint.startsWith("select") || fingerprint.startsWith("update") || fingerprint.startsWith("delete"))) {
+            return false;
+        }
+        if (!lastExplainNanos.containsKey(fingerprint) && lastExplainNanos.size() >= QueryStatistics.MAX_FINGERPRINTS) {
+            fingerprint = QueryStatistics.OTHER;
+        }
+        long now = System.nanoTime();
+        Long last = lastExplainNanos.get(fingerprint);
+        if (last != null && now - last < interval) {
+            return false;
+        }
+        lastExplainNanos.put(fingerprint, now);
+        return true;
+    }
+
+    private List<Row> explain(String sql, Object[] parameters) throws SQLException {
+        if (explainConnection == null || explainConnection.isClosed()) {
+            // 느린 쿼리가 몰릴 때 풀을 더 압박하지 않도록 풀 밖의 커넥션을 쓴다.
+            explainConnection = simpleDb.openDedicatedConnection();
+        }
+        try (PreparedStatement pstmt = explainConnection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                pstmt.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Row.Columns columns = Row.Columns.of(rs.getMetaData());
+                List<Row> plan = new ArrayList<>();
+                while (rs.next()) {
+                    plan.add(Row.read(rs, columns));
+                }
+                return plan;
+            }
+        }
+    }
+
+    private void closeExplainConnection() {
+        if (explainConnection != null) {
+            try {
+                explainConnection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            explainConnection = null;
+        }
+    }
+
+    // 큐에 남은 항목을 모두 쓴 뒤 돌아온다.
+    @Override
+    public void close() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = writer;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+        // 닫히는 사이에 들어와 writer 가 보지 못한 항목은 버린 것으로 센다.
+        while (queue.poll() != null) {
+            droppedCount.increment();
+        }
+        out.flush();
+    }
+
+    private static class Entry {
+
+        private final LocalDateTime loggedAt = LocalDateTime.now();
+        private final String sql;
+        private final Object[] parameters;
+        private final long rowCount;
+        private final long connectionWaitNanos;
+        private final long elapsedNanos;
+        private final String error;
+
+        Entry(StatementContext context, long elapsedNanos, String error) {
+            this.sql = context.getSql();
+            this.parameters = context.getParameters();
+            this.rowCount = context.getRowCount();
+            this.connectionWaitNanos = context.getConnectionWaitNanos();
+            this.elapsedNanos = elapsedNanos;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.simpledb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 끝까지 읽어 두어야 하지만 힙에 다 올리기엔 큰 결과.
+ * <p>
+ * 처음에는 인코딩한 행을 힙 버퍼에 쌓다가, 행 수나 바이트 수가 한도를 넘으면 그때까지 쌓은 버퍼를
+ * 임시 파일로 옮기고 이후 행은 파일에 바로 이어 쓴다. 다 읽고 나면 파일을 영역(region)별로
+ * 읽기 전용 매핑해서, 값은 페이지 캐시에서 복사 없이 읽는다. 행은 영역 경계를 넘지 않는다.
+ * <p>
+ * close 하면 임시 파일을 지운다. 매핑 자체는 GC 가 버퍼를 회수할 때 풀린다.
+ */
+public class SpillableResult extends EncodedResult {
+
+    public static final long DEFAULT_ROW_THRESHOLD = 100_000;
+    public static final long DEFAULT_BYTE_THRESHOLD = 64L << 20;
+
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int REGION_BYTES = 256 << 20;
+
+    private final long rowThreshold;
+    private final long byteThreshold;
+
+    private long bytes;
+
+    // 메모리에 쌓는 동안 쓰는 버퍼
+    private ByteBuffer current;
+
+    // 파일로 옮긴 뒤 쓰는 상태
+    private Path file;
+    private FileChannel channel;
+    private ByteBuffer writeBuffer;
+    private final List<long[]> regions = new ArrayList<>(); // {파일 위치, 길이}
+
+    private SpillableResult(RowLayout layout, long rowThreshold, long byteThreshold) {
+        super(layout);
+        this.rowThreshold = rowThreshold;
+        this.byteThreshold = byteThreshold;
+    }
+
+    static SpillableResult read(ResultSet rs, long rowThreshold, long byteThreshold) throws SQLException {
+        SpillableResult result = new SpillableResult(RowLayout.of(rs.getMetaData()), rowThreshold, byteThreshold);
+        try {
+            while (rs.next()) {
+                result.append(result.codec.encode(rs));
+            }
+            result.finish();
+            return result;
+        } catch (IOException e) {
+            result.close();
+            throw new SQLException("결과를 임시 파일로 옮기는 중 실패했습니다.", e);
+        } catch (SQLException | RuntimeException e) {
+            result.close();
+            throw e;
+        }
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    private void append(ByteBuffer row) throws IOException {
+        int length = row.remaining();
+        bytes += length;
+
+        if (channel == null && (size() + 1 > rowThreshold || bytes > byteThreshold)) {
+            spill();
+        }
+
+        if (channel == null) {
+            if (current == null || current.remaining() < length) {
+                current = ByteBuffer.allocate(Math.max(CHUNK_BYTES, length)).order(ByteOrder.nativeOrder());
+                chunks.add(current);
+            }
+            addAddress(chunks.size() - 1, current.position());
+            current.put(row);
+            return;
+        }
+
+        long[] region = regions.get(regions.size() - 1);
+        if (region[1] > 0 && region[1] + length > REGION_BYTES) {
+            region = new long[]{region[0] + region[1], 0};
+            regions.add(region);
+        }
+        addAddress(regions.size() - 1, (int) region[1]);
+        write(row);
+        region[1] += length;
+    }
+
+    // 지금까지 메모리에 쌓은 청크를 하나씩 영역으로 파일에 옮긴다. 청크 번호가 곧 영역 번호라 행 위치는 그대로다.
+    private void spill() throws IOException {
+        file = Files.createTempFile("simpledb-spill-", ".rows");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeBuffer = ByteBuffer.allocateDirect(CHUNK_BYTES);
+
+        long position = 0;
+        for (ByteBuffer chunk : chunks) {
+            chunk.flip();
+            regions.add(new long[]{position, chunk.remaining()});
+            position += chunk.remaining();
+            write(chunk);
+        }
+        if (regions.isEmpty()) {
+            regions.add(new long[]{0, 0});
+        }
+        chunks.clear();
+        current = null;
+    }
+
+    private void write(ByteBuffer row) throws IOException {
+        if (writeBuffer.remaining() < row.remaining()) {
+            flush();
+        }
+        if (writeBuffer.remaining() < row.remaining()) {
+            while (row.hasRemaining()) {
+                channel.write(row); // 쓰기 버퍼보다 큰 행은 바로 쓴다.
+            }
+            return;
+        }
+        writeBuffer.put(row);
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    private void finish() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        flush();
+        writeBuffer = null;
+        for (long[] region : regions) {
+            chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, region[0], region[1]).order(ByteOrder.nativeOrder()));
+        }
+        // 매핑은 채널을 닫아도 유지된다.
+        channel.close();
+        channel = null;
+    }
+
+    @Override
+    void release() {
+        current = null;
+        writeBuffer = null;
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            // 매핑이 살아 있어 지우지 못하는 OS 에서는 종료 시점에 지운다.
+            file.toFile().deleteOnExit();
+        }
+    }
+}
@@ -1,22 +1,44 @@
 package org.example.simpledb;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
 import lombok.Data;
 
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.sql.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Data
 public class Sql {
 
+    // 호출자가 넘긴 OutputStream 은 호출자가 닫는다.
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
     private final StringBuilder sqlBuilder;
     private final List<Object> parameters;
 
     private final SimpleDb simpleDb;
 
+    private Duration timeout; // 이 Sql 의 실행 한 번에 허용하는 시간
+
+    private boolean coalesce; // 같은 읽기를 동시에 실행하는 다른 쓰레드와 결과를 나눠 받는다
+
+    private boolean track; // 읽은 엔티티의 스냅샷을 남긴다
+
     public Sql(SimpleDb simpleDb) {
         this.sqlBuilder = new StringBuilder();
         this.parameters = new ArrayList<>();
@@ -32,13 +54,12 @@ public class Sql {
 
     public Sql appendIn(String sqlPart, Collection<?> values) {
         StringBuilder inClause = new StringBuilder();
-        for (int i = 0; i < values.size(); i++) {
-            if (i > 0) {
+        for (Object value : values) {
+            if (inClause.length() > 0) {
                 inClause.append(", ");
             }
             inClause.append("?");
-            parameters.add(values.toArray()[i]);
-
+            parameters.add(value);
         }
 
         String newSqlPart = sqlPart.replace("?", inClause.toString());
@@ -47,6 +68,48 @@ public class Sql {
         return this;
     }
 
+    public Sql timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * 같은 SQL 과 파라미터로 동시에 실행 중인 읽기가 있으면 DB 에 다시 보내지 않고 그 결과를 같이 받는다.
+     * 목록은 호출마다 새로 만들어 주지만 Row 나 엔티티는 함께 받은 쓰레드끼리 같은 객체이므로 읽기만 한다.
+     * 트랜잭션 안(쓰레드에 커넥션이 묶인 상태)에서는 합치지 않는다.
+     */
+    public Sql coalesce() {
+        this.coalesce = true;
+        return this;
+    }
+
+    /**
+     * 읽은 엔티티의 값을 남겨 두어 save 할 때 바뀐 필드만 UPDATE 하게 한다.
+     * 엔티티마다 값을 한 벌 더 들고 있으므로, 고쳐서 저장할 엔티티를 읽을 때만 켠다. 켜지 않으면 save 는 모든 필드를 쓴다.
+     */
+    public Sql track() {
+        this.track = true;
+        return this;
+    }
+
+    private Deadline.Scope timeoutScope() {
+        return timeout == null ? Deadline.Scope.NONE : simpleDb.deadline(timeout);
+    }
+
+    private <T> T read(String terminal, SqlWork<T> work) throws SQLException {
+        try (Deadline.Scope ignored = timeoutScope()) {
+            if (!coalesce) {
+                return work.run();
+            }
+            return simpleDb.coalesce(terminal, sqlBuilder.toString(), parameters.toArray(), timeout, work);
+        }
+    }
+
+    private <T> List<T> readList(String terminal, SqlWork<List<T>> work) throws SQLException {
+        List<T> rows = read(terminal, work);
+        return coalesce && rows != null ? new ArrayList<>(rows) : rows;
+    }
+
     public String getSql() {
         return sqlBuilder.toString();
     }
@@ -63,95 +126,173 @@ public class Sql {
         return pstmt;
     }
 
-    public Map<String, Object> selectRow(Connection conn) {
-        Map<String, Object> map = new HashMap<>();
-        try (PreparedStatement pstmt = prepareStatement(conn, getSql(), getParameters());
-             ResultSet rs = pstmt.executeQuery()) {
-
-
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-
-            if (rs.next()) { //레코드가 있을 경우
-                for (int i = 1; i <= columnCount; i++) {
-                    //컬럼의 수만큼 모든 데이터를 Map에 넣는다.
-                    String columnName = metaData.getColumnName(i);
-                    Object columnValue = rs.getObject(i);
-                    map.put(columnName, columnValue);
+    public Row selectRow(Connection conn) throws SQLException {
+        String sql = getSql();
+        Object[] parameters = getParameters();
+        try (Deadline.Scope ignored = timeoutScope();
+             PreparedStatement pstmt = prepareStatement(conn, sql, parameters)) {
+
+            return simpleDb.execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) { //레코드가 있을 경우
+                        context.setRowCount(1);
+                        return Row.read(rs, Row.Columns.of(rs.getMetaData()));
+                    }
+                    return null;
                 }
-                return map;
-            } else {
-                return null;
-            }
+            });
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            SimpleDb.propagateTimeout(e);
         }
         return null;
     }
 
 
-    public Long selectLong(Connection conn) {
-        try (PreparedStatement pstmt = prepareStatement(conn, getSql(), getParameters());
-             ResultSet rs = pstmt.executeQuery()) {
+    public Long selectLong(Connection conn) throws SQLException {
+        String sql = getSql();
+        Object[] parameters = getParameters();
+        try (Deadline.Scope ignored = timeoutScope();
+             PreparedStatement pstmt = prepareStatement(conn, sql, parameters)) {
 
-            return rs.next() ? rs.getLong(1) : null;
+            return simpleDb.execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        context.setRowCount(1);
+                        return rs.getLong(1);
+                    }
+                    return null;
+                }
+            });
 
         } catch (SQLException e) {
-            e.printStackTrace();
+            SimpleDb.propagateTimeout(e);
         }
         return null;
     }
 
-    public List<Long> selectLongs(Connection conn) {
+    public List<Long> selectLongs(Connection conn) throws SQLException {
         List<Long> result = new ArrayList<>();
-        try (PreparedStatement pstmt = prepareStatement(conn, getSql(), getParameters());
-             ResultSet rs = pstmt.executeQuery()) {
-
-
-            while (rs.next()) {
-                result.add(rs.getLong(1));
-            }
+        String sql = getSql();
+        Object[] parameters = getParameters();
+        try (Deadline.Scope ignored = timeoutScope();
+             PreparedStatement pstmt = prepareStatement(conn, sql, parameters)) {
+
+            simpleDb.execute(pstmt, sql, parameters, context -> {
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        result.add(rs.getLong(1));
+                    }
+                }
+                return context.read(result.size());
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
+            SimpleDb.propagateTimeout(e);
         }
         return result;
     }
 
     public long insert() throws SQLException {
-        return simpleDb.executeQueryWithGeneratedKeys(sqlBuilder.toString(), parameters.toArray());
+        try (Deadline.Scope ignored = timeoutScope()) {
+            return simpleDb.executeQueryWithGeneratedKeys(sqlBuilder.toString(), parameters.toArray());
+        }
     }
 
     public long update() throws SQLException {
-        return simpleDb.executeQuery(sqlBuilder.toString(), parameters.toArray());
+        try (Deadline.Scope ignored = timeoutScope()) {
+            return simpleDb.executeQuery(sqlBuilder.toString(), parameters.toArray());
+        }
     }
 
     public long delete() throws SQLException {
-        return simpleDb.executeQuery(sqlBuilder.toString(), parameters.toArray());
+        try (Deadline.Scope ignored = timeoutScope()) {
+            return simpleDb.executeQuery(sqlBuilder.toString(), parameters.toArray());
+        }
+    }
+
+    public Row selectRow() throws SQLException {
+        return read("selectRow", () -> simpleDb.queryRow(sqlBuilder.toString(), parameters.toArray()));
+    }
+
+    public List<Row> selectRowsAsRows() throws SQLException {
+        return readList("selectRowsAsRows", () -> simpleDb.queryRowsAsRows(sqlBuilder.toString(), parameters.toArray()));
+    }
+
+    public OffHeapResult selectOffHeap() throws SQLException {
+        try (Deadline.Scope ignored = timeoutScope()) {
+            return simpleDb.selectOffHeap(sqlBuilder.toString(), parameters.toArray());
+        }
+    }
+
+    public SpillableResult selectSpillable() throws SQLException {
+        return selectSpillable(SpillableResult.DEFAULT_ROW_THRESHOLD, SpillableResult.DEFAULT_BYTE_THRESHOLD);
+    }
+
+    public SpillableResult selectSpillable(long rowThreshold, long byteThreshold) throws SQLException {
+        try (Deadline.Scope ignored = timeoutScope()) {
+            return simpleDb.selectSpillable(sqlBuilder.toString(), parameters.toArray(), rowThreshold, byteThreshold);
+        }
     }
 
-    public Map<String, Object> selectRow() throws SQLException {
-        return simpleDb.selectRow(sqlBuilder.toString(), parameters.toArray());
+    // keyColumn 의 MIN ~ MAX 를 parallelism 개 범위로 나눠 동시에 읽고, 키 순서대로 합쳐 돌려준다.
+    public <T> List<T> parallelScan(Class<T> clazz, String keyColumn, int parallelism) throws SQLException {
+        try (Deadline.Scope ignored = timeoutScope()) {
+            return new ParallelScan<>(simpleDb, clazz, sqlBuilder.toString(), parameters.toArray(), keyColumn, parallelism).collect();
+        }
+    }
+
+    // 범위 하나를 다 읽을 때마다 consumer 에 넘긴다. 범위 사이의 순서는 보장하지 않는다.
+    public <T> void parallelScan(Class<T> clazz, String keyColumn, int parallelism, Consumer<? super List<T>> consumer) throws SQLException {
+        try (Deadline.Scope ignored = timeoutScope()) {
+            new ParallelScan<>(simpleDb, clazz, sqlBuilder.toString(), parameters.toArray(), keyColumn, parallelism).forEachRange(consumer);
+        }
+    }
+
+    public Stream<Row> streamRows() throws SQLException {
+        try (Deadline.Scope ignored = timeoutScope()) {
+            return simpleDb.streamRows(sqlBuilder.toString(), parameters.toArray());
+        }
     }
 
     public <T> List<T> selectRows(Class<T> clazz) throws SQLException {
-        return simpleDb.selectRows(clazz, sqlBuilder.toString(), parameters.toArray());
+        String terminal = (track ? "selectRows:track:" : "selectRows:") + clazz.getName();
+        return readList(terminal, () -> simpleDb.queryRows(clazz, sqlBuilder.toString(), parameters.toArray(), track));
+    }
+
+    public <T> Flow.Publisher<T> publish(Class<T> clazz) {
+        return publish(clazz, ForkJoinPool.commonPool());
+    }
+
+    public <T> Flow.Publisher<T> publish(Class<T> clazz, Executor executor) {
+        return simpleDb.publish(clazz, sqlBuilder.toString(), parameters.toArray(), timeout, executor);
     }
 
     public String selectString() throws SQLException {
-        return simpleDb.selectString(sqlBuilder.toString(), parameters.toArray());
+        return read("selectString", () -> simpleDb.queryString(sqlBuilder.toString(), parameters.toArray()));
     }
 
     public Long selectLong() throws SQLException {
-        return simpleDb.selectLong(sqlBuilder.toString(), parameters.toArray());
+        return read("selectLong", () -> simpleDb.queryLong(sqlBuilder.toString(), parameters.toArray()));
     }
 
     public List<Long> selectLongs() throws SQLException {
-        return simpleDb.selectLongs(sqlBuilder.toString(), parameters.toArray());
+        return readList("selectLongs", () -> simpleDb.queryLongs(sqlBuilder.toString(), parameters.toArray()));
+    }
+
+    public long writeJson(OutputStream out) throws SQLException, IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            return writeJson(generator);
+        }
+    }
+
+    public long writeJson(JsonGenerator generator) throws SQLException, IOException {
+        try (Deadline.Scope ignored = timeoutScope()) {
+            return simpleDb.writeJson(sqlBuilder.toString(), parameters.toArray(), generator);
+        }
     }
 
     public LocalDateTime selectDatetime() throws SQLException {
-        return simpleDb.selectDatetime(sqlBuilder.toString());
+        return read("selectDatetime", () -> simpleDb.queryDatetime(sqlBuilder.toString()));
     }
 
 
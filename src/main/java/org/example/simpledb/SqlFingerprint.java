@@ -0,0 +1,103 @@
+package org.example.simpledb;
+
+/**
+ * SQL 텍스트에서 값만 다른 쿼리를 같은 모양으로 묶기 위한 정규화.
+ * <ul>
+ *     <li>문자열/숫자 리터럴 → ?</li>
+ *     <li>IN (?, ?, ?) → IN (?+)</li>
+ *     <li>주석 제거, 연속 공백 → 공백 하나, 키워드는 소문자</li>
+ * </ul>
+ */
+public final class SqlFingerprint {
+
+    private SqlFingerprint() {
+    }
+
+    public static String of(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = sql.charAt(i);
+
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+                appendToken(out, "?");
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-' || c == '#') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c) && !isIdentifierPart(previous(out))) {
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                appendToken(out, "?");
+            } else if (c == '`') {
+                int end = sql.indexOf('`', i + 1);
+                end = end < 0 ? length : end + 1;
+                appendToken(out, sql.substring(i, end));
+                i = end;
+            } else if (isIdentifierPart(c)) {
+                int start = i;
+                while (i < length && isIdentifierPart(sql.charAt(i))) {
+                    i++;
+                }
+                appendToken(out, sql.substring(start, i).toLowerCase());
+            } else {
+                appendToken(out, String.valueOf(c));
+                i++;
+            }
+        }
+
+        return collapseInLists(out.toString());
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2; // '' 이스케이프
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return sql.length();
+    }
+
+    // 단어끼리만 공백으로 띄우고, 기호 앞뒤는 붙인다. "id = ?" → "id=?"
+    private static void appendToken(StringBuilder out, String token) {
+        if (out.length() > 0 && isWordChar(previous(out)) && isWordChar(token.charAt(0))) {
+            out.append(' ');
+        }
+        out.append(token);
+    }
+
+    private static String collapseInLists(String fingerprint) {
+        return fingerprint.replaceAll("(?i)\\bin\\(\\?(,\\?)*\\)", "in(?+)");
+    }
+
+    private static char previous(StringBuilder out) {
+        return out.length() == 0 ? ' ' : out.charAt(out.length() - 1);
+    }
+
+    private static boolean isWordChar(char c) {
+        return isIdentifierPart(c) || c == '?' || c == '`';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
@@ -0,0 +1,250 @@
+package org.example.simpledb;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * devMode 의 SQL / 트랜잭션 로그.
+ * <p>
+ * 쿼리 쓰레드는 이벤트(SQL, 파라미터, 실행 시간, 커넥션 id)를 고정 크기 링 버퍼에 넣기만 하고,
+ * 출력은 별도 쓰레드가 모아서 한 번에 한다. 버퍼는 락 없이 CAS 로 칸을 잡으며,
+ * 가득 차면 기다리지 않고 버린 뒤 개수만 센다. 그래서 stdout 락을 쿼리 쓰레드끼리 다투지 않는다.
+ * <p>
+ * 칸마다 순번을 두어, 쓰는 쪽은 순번이 자기 위치와 같을 때만 채우고 읽는 쪽은 위치 + 1 일 때만 읽는다.
+ * <p>
+ * 출력 쓰레드는 처음 이벤트가 들어올 때 시작한다. 버퍼가 비면 시간 제한 없이 잠들고,
+ * 잠든 뒤 처음 이벤트를 넣은 쓰레드가 깨운다. close 는 tail 에 닫힘 표시를 CAS 로 붙이므로,
+ * 그 뒤에는 칸을 잡지 못하고 버린 개수로 세며, 그 전에 칸을 잡은 이벤트는 모두 쓰고 끝난다.
+ */
+public class SqlLog implements StatementInterceptor, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    // tail 의 부호 비트. 붙어 있으면 닫힌 것이다.
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final PrintStream out;
+
+    private final int mask;
+    private final Event[] events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(); // 다음에 쓸 위치 (닫히면 CLOSED 가 붙는다)
+    private long head; // 다음에 읽을 위치. writer 쓰레드에서만 사용
+
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder writtenCount = new LongAdder();
+
+    private volatile Thread writer; // 처음 offer 할 때 시작한다
+    private final AtomicBoolean idle = new AtomicBoolean(); // writer 가 잠들려 한다
+
+    public SqlLog(PrintStream out) {
+        this(out, DEFAULT_CAPACITY);
+    }
+
+    // capacity 는 2 의 거듭제곱으로 올린다.
+    public SqlLog(PrintStream out, int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity 는 2 이상이어야 합니다: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.out = out;
+        this.mask = size - 1;
+        this.events = new Event[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+    boolean isWriterStarted() {
+        return writer != null;
+    }
+
+    @Override
+    public void afterExecute(StatementContext context, long elapsedNanos) {
+        offer(new Event("sql", context.getSql(), context.getParameters(), context.getConnectionId(),
+                elapsedNanos, context.getRowCount(), null));
+    }
+
+    @Override
+    public void onError(StatementContext context, SQLException e, long elapsedNanos) {
+        offer(new Event("sql", context.getSql(), context.getParameters(), context.getConnectionId(),
+                elapsedNanos, context.getRowCount(), e.getMessage()));
+    }
+
+    void transaction(String action, Connection conn) {
+        offer(new Event("tx", action, null, conn == null ? 0 : System.identityHashCode(conn), -1, -1, null));
+    }
+
+    void message(String text) {
+        offer(new Event("info", text, null, 0, -1, -1, null));
+    }
+
+    boolean offer(Event event) {
+        if (writer == null) {
+            startWriter();
+        }
+        long position = tail.get();
+        while (true) {
+            if (position < 0) {
+                // 닫혔다. writer 가 이미 끝났을 수 있으므로 넣지 않고 버린 것으로 센다.
+                droppedCount.increment();
+                return false;
+            }
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events[index] = event;
+                    sequences.set(index, position + 1); // 여기서 writer 에게 보인다.
+                    if (idle.get() && idle.compareAndSet(true, false)) {
+                        LockSupport.unpark(writer);
+                    }
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // writer 가 아직 비우지 못한 칸까지 한 바퀴 돌았다. 가득 찬 것이다.
+                droppedCount.increment();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writer != null || tail.get() < 0) {
+            return;
+        }
+        Thread thread = new Thread(this::drain, "simpledb-sql-log");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    private boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    private Event poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Event event = events[index];
+        events[index] = null;
+        sequences.set(index, head + events.length); // 다음 바퀴에 쓸 수 있게 연다.
+        head++;
+        return event;
+    }
+
+    private void drain() {
+        StringBuilder batch = new StringBuilder();
+        while (true) {
+            Event event = poll();
+            if (event == null) {
+                if (batch.length() > 0) {
+                    out.print(batch);
+                    out.flush();
+                    batch.setLength(0);
+                }
+                if (tail.get() == (head | CLOSED)) {
+                    return; // 닫혔고, 닫히기 전에 칸을 잡은 이벤트를 모두 썼다.
+                }
+                // 잠든다고 알린 뒤 한 번 더 보고 잔다. 그 사이에 넣은 쓰레드는 idle 을 보고 깨운다.
+                idle.set(true);
+                if (isEmpty()) {
+                    if (tail.get() < 0) {
+                        Thread.onSpinWait(); // 닫히기 전에 칸만 잡고 아직 채우지 않은 이벤트를 기다린다.
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+                idle.set(false);
+                continue;
+            }
+            event.appendTo(batch);
+            writtenCount.increment();
+        }
+    }
+
+    // 버퍼에 남은 이벤트를 모두 쓴 뒤 돌아온다.
+    @Override
+    public void close() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            tail.getAndUpdate(position -> position | CLOSED);
+            thread = writer;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+    }
+
+    static class Event {
+
+        private final long loggedAtMillis = System.currentTimeMillis();
+        private final String thread = Thread.currentThread().getName();
+        private final String kind;
+        private final String text;
+        private final Object[] parameters;
+        private final int connectionId;
+        private final long elapsedNanos;
+        private final long rowCount;
+        private final String error;
+
+        Event(String kind, String text, Object[] parameters, int connectionId, long elapsedNanos, long rowCount, String error) {
+            this.kind = kind;
+            this.text = text;
+            this.parameters = parameters;
+            this.connectionId = connectionId;
+            this.elapsedNanos = elapsedNanos;
+            this.rowCount = rowCount;
+            this.error = error;
+        }
+
+        // [sql] 2024-01-01T12:00:00.123 main conn=1b2c3d 0.4ms rows=1 SELECT ... parameters: [1]
+        void appendTo(StringBuilder line) {
+            line.append('[').append(kind).append("] ")
+                    .append(LocalDateTime.ofInstant(Instant.ofEpochMilli(loggedAtMillis), ZoneId.systemDefault()))
+                    .append(' ').append(thread);
+            if (connectionId != 0) {
+                line.append(" conn=").append(Integer.toHexString(connectionId));
+            }
+            if (elapsedNanos >= 0) {
+                line.append(String.format(" %.1fms", elapsedNanos / 1e6));
+            }
+            if (rowCount >= 0) {
+                line.append(" rows=").append(rowCount);
+            }
+            if (error != null) {
+                line.append(" error=").append(error);
+            }
+            line.append(' ').append(kind.equals("sql") ? text.trim().replaceAll("\\s+", " ") : text);
+            if (parameters != null && parameters.length > 0) {
+                line.append(" parameters: ").append(Arrays.toString(parameters));
+            }
+            line.append('\n');
+        }
+    }
+}
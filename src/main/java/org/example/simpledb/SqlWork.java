@@ -0,0 +1,8 @@
+package org.example.simpledb;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface SqlWork<T> {
+    T run() throws SQLException;
+}
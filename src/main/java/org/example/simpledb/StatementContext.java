@@ -0,0 +1,73 @@
+package org.example.simpledb;
+
+/**
+ * 실행 중인 쿼리 한 건의 정보. 인터셉터에 넘겨진다.
+ * rowCount 는 update 면 영향받은 행 수, select 면 읽은 행 수다.
+ */
+public class StatementContext {
+
+    private final String sql;
+    private final Object[] parameters;
+    private long rowCount = -1;
+    private long connectionWaitNanos;
+    private int connectionId;
+    private int fetchSize;
+
+    StatementContext(String sql, Object[] parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Object[] getParameters() {
+        return parameters;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    // 이 쿼리 직전에 풀에서 커넥션을 기다린 시간. 이미 쓰레드에 묶인 커넥션이면 0 이다.
+    public long getConnectionWaitNanos() {
+        return connectionWaitNanos;
+    }
+
+    // 실행한 커넥션의 identityHashCode. 같은 커넥션이면 같은 값이다.
+    public int getConnectionId() {
+        return connectionId;
+    }
+
+    // 실행할 때 statement 에 걸린 fetch size. 0 이면 드라이버 기본값이다.
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    void setConnectionId(int connectionId) {
+        this.connectionId = connectionId;
+    }
+
+    void setConnectionWaitNanos(long connectionWaitNanos) {
+        this.connectionWaitNanos = connectionWaitNanos;
+    }
+
+    void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    int updated(int count) {
+        this.rowCount = count;
+        return count;
+    }
+
+    long read(long count) {
+        this.rowCount = count;
+        return count;
+    }
+}
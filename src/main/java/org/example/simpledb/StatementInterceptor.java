@@ -0,0 +1,20 @@
+package org.example.simpledb;
+
+import java.sql.SQLException;
+
+/**
+ * SimpleDb / Sql 의 모든 쿼리 실행 전후에 호출되는 확장 지점.
+ * 실행 쓰레드에서 바로 호출되므로 오래 걸리는 일은 다른 쓰레드로 넘겨야 한다.
+ * 인터셉터에서 던진 예외는 쿼리 실행에 영향을 주지 않는다.
+ */
+public interface StatementInterceptor {
+
+    default void beforeExecute(StatementContext context) {
+    }
+
+    default void afterExecute(StatementContext context, long elapsedNanos) {
+    }
+
+    default void onError(StatementContext context, SQLException e, long elapsedNanos) {
+    }
+}
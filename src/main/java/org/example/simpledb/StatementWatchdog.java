@@ -0,0 +1,76 @@
+package org.example.simpledb;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 실행 중인 Statement 를 지켜보다가 데드라인이 지나거나 실행 쓰레드가 인터럽트되면 서버 쪽에서 취소한다.
+ * JDBC 의 setQueryTimeout 은 초 단위라서, 초 미만의 예산과 인터럽트는 여기서 처리한다.
+ */
+class StatementWatchdog {
+
+    static final long CHECK_INTERVAL_MILLIS = 100;
+
+    private final Set<Running> running = ConcurrentHashMap.newKeySet();
+    private final LongAdder cancelledCount = new LongAdder();
+
+    Running register(Statement stmt, Deadline deadline) {
+        Running entry = new Running(stmt, Thread.currentThread(), deadline);
+        running.add(entry);
+        return entry;
+    }
+
+    void unregister(Running entry) {
+        running.remove(entry);
+    }
+
+    void check() {
+        for (Running entry : running) {
+            boolean expired = entry.deadline != null && entry.deadline.isExpired();
+            if (expired || entry.thread.isInterrupted()) {
+                running.remove(entry);
+                entry.cancel();
+                cancelledCount.increment();
+            }
+        }
+    }
+
+    // 드라이버가 setQueryTimeout 으로 직접 취소한 경우
+    void recordDriverTimeout() {
+        cancelledCount.increment();
+    }
+
+    long getCancelledCount() {
+        return cancelledCount.sum();
+    }
+
+    static final class Running {
+
+        private final Statement stmt;
+        private final Thread thread;
+        private final Deadline deadline;
+        private volatile boolean cancelled;
+
+        private Running(Statement stmt, Thread thread, Deadline deadline) {
+            this.stmt = stmt;
+            this.thread = thread;
+            this.deadline = deadline;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            try {
+                stmt.cancel(); // MySQL 드라이버는 별도 커넥션으로 KILL QUERY 를 보낸다.
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
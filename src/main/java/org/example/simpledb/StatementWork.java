@@ -0,0 +1,8 @@
+package org.example.simpledb;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+interface StatementWork<T> {
+    T run(StatementContext context) throws SQLException;
+}
@@ -0,0 +1,156 @@
+package org.example.simpledb;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 테넌트(DB)마다 SimpleDb 를 두되, 커넥션은 전체 한도 하나를 나눠 쓰게 한다.
+ * <pre>
+ * TenantPoolManager tenants = new TenantPoolManager(50, Duration.ofMinutes(1));
+ * tenants.register("shop_a", SimpleDbConfig.builder().host("localhost")...dbName("shop_a").poolSize(10).build());
+ * tenants.get("shop_a").genSql()...
+ * </pre>
+ * <ul>
+ *     <li>테넌트 풀은 비어서 시작하고, 쓸 때 poolSize 까지 커넥션을 연다. 전체 한도가 차면 다른 풀이 반납하거나 자리를 내줄 때까지 기다린다.</li>
+ *     <li>idleTimeout 동안 놀던 커넥션은 닫으므로, 쓰지 않는 테넌트는 커넥션이 0 개로 줄어든다.</li>
+ *     <li>한도가 찼는데 기다리는 풀이 있으면, 다른 풀에서 가장 오래 논 커넥션부터 닫아 자리를 내준다.</li>
+ *     <li>워치독, 누수 확인, 유휴 정리는 테넌트 수와 상관없이 쓰레드 하나에서 돈다. SQL 로그 쓰레드도 하나만 쓴다.</li>
+ * </ul>
+ */
+public class TenantPoolManager implements AutoCloseable {
+
+    private static final long MIN_EVICT_INTERVAL_MILLIS = 100;
+    private static final long MAX_EVICT_INTERVAL_MILLIS = 10_000;
+
+    private final ConnectionBudget budget;
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService scheduler;
+    private final SqlLog sqlLog = new SqlLog(System.out);
+
+    private final Map<String, SimpleDb> tenants = new ConcurrentHashMap<>();
+    private final List<ConnectionPool> pools = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean reclaimScheduled = new AtomicBoolean();
+
+    private volatile boolean closed;
+
+    public TenantPoolManager(int maxTotalConnections, Duration idleTimeout) {
+        if (idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("idleTimeout 은 0 이상이어야 합니다: " + idleTimeout);
+        }
+        this.budget = new ConnectionBudget(maxTotalConnections, this::scheduleReclaim);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simpledb-tenant-housekeeping");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = Math.max(MIN_EVICT_INTERVAL_MILLIS, Math.min(MAX_EVICT_INTERVAL_MILLIS, idleTimeout.toMillis() / 2));
+        scheduler.scheduleAtFixedRate(this::evictIdle, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // 커넥션은 열지 않는다. config 의 poolSize 가 이 테넌트가 가질 수 있는 최대 커넥션 수다.
+    public synchronized SimpleDb register(String tenant, SimpleDbConfig config) {
+        if (closed) {
+            throw new IllegalStateException("이미 닫힌 TenantPoolManager 입니다.");
+        }
+        if (tenants.containsKey(tenant)) {
+            throw new IllegalArgumentException("이미 등록된 테넌트입니다: " + tenant);
+        }
+        SimpleDb simpleDb = new SimpleDb(config, this);
+        tenants.put(tenant, simpleDb);
+        return simpleDb;
+    }
+
+    public SimpleDb get(String tenant) {
+        SimpleDb simpleDb = tenants.get(tenant);
+        if (simpleDb == null) {
+            throw new IllegalArgumentException("등록되지 않은 테넌트입니다: " + tenant);
+        }
+        return simpleDb;
+    }
+
+    public int getTenantCount() {
+        return tenants.size();
+    }
+
+    // 모든 테넌트가 지금 열어 둔 커넥션 수
+    public int getOpenConnectionCount() {
+        return budget.getUsed();
+    }
+
+    public int getMaxTotalConnections() {
+        return budget.getMax();
+    }
+
+    ConnectionPool newPool(int capacity, SqlWork<Connection> opener) {
+        ConnectionPool pool = new ConnectionPool(capacity, opener, budget);
+        pools.add(pool);
+        return pool;
+    }
+
+    ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    SqlLog getSqlLog() {
+        return sqlLog;
+    }
+
+    private void evictIdle() {
+        for (ConnectionPool pool : pools) {
+            pool.evictIdle(idleTimeoutNanos, Integer.MAX_VALUE);
+        }
+    }
+
+    // 풀의 락을 잡은 채로 불리므로 회수는 정리 쓰레드에 넘긴다.
+    private void scheduleReclaim() {
+        if (closed || !reclaimScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.execute(this::reclaim);
+        } catch (RejectedExecutionException e) {
+            reclaimScheduled.set(false);
+        }
+    }
+
+    // 기다리는 풀이 있는 동안, 가장 오래 논 커넥션을 하나씩 닫아 자리를 내준다.
+    private void reclaim() {
+        reclaimScheduled.set(false);
+        while (budget.hasStarved()) {
+            ConnectionPool oldest = null;
+            long oldestIdleNanos = -1;
+            for (ConnectionPool pool : pools) {
+                long idleNanos = pool.oldestIdleNanos();
+                if (idleNanos > oldestIdleNanos) {
+                    oldest = pool;
+                    oldestIdleNanos = idleNanos;
+                }
+            }
+            if (oldest == null || oldest.evictIdle(0, 1) == 0) {
+                return;
+            }
+        }
+    }
+
+    // 놀고 있는 커넥션을 닫고 정리 쓰레드를 멈춘다. 빌려 간 커넥션은 반납될 때 닫힌다.
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        scheduler.shutdownNow();
+        for (ConnectionPool pool : pools) {
+            pool.close();
+        }
+        sqlLog.close();
+    }
+}
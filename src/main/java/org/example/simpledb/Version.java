@@ -0,0 +1,16 @@
+package org.example.simpledb;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 낙관적 잠금에 쓰는 버전 필드. @Column 과 함께 붙인다. (Long, Integer, long, int)
+ * update 는 WHERE 절에 읽었을 때의 버전을 걸고 버전을 1 올린다.
+ * 그 사이 다른 쪽이 먼저 고쳤으면 OptimisticLockException 이 난다.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Version {
+}
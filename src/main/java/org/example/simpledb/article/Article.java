@@ -2,6 +2,7 @@ package org.example.simpledb.article;
 
 import lombok.Data;
 import org.example.simpledb.Column;
+import org.example.simpledb.Version;
 
 import java.time.LocalDateTime;
 
@@ -24,4 +25,8 @@ public class Article {
     @Column(type = "BIT(1)", nullable = true, defaultValue = "0")
     private Boolean isBlind;
 
+    @Version
+    @Column(type = "BIGINT", defaultValue = "0")
+    private Long version;
+
 }
@@ -0,0 +1,44 @@
+package org.example.loadtest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("지연 시간 히스토그램 테스트")
+class LatencyHistogramTest {
+
+    @DisplayName("백분위 값은 1% 오차 안에서 계산된다.")
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        assertThat(histogram.getTotalCount()).isEqualTo(10_000L);
+        assertWithinOnePercent(histogram.valueAtPercentile(50), 5_000_000);
+        assertWithinOnePercent(histogram.valueAtPercentile(99), 9_900_000);
+        assertWithinOnePercent(histogram.valueAtPercentile(99.9), 9_990_000);
+        assertThat(histogram.valueAtPercentile(100)).isEqualTo(10_000_000L);
+    }
+
+    @DisplayName("쓰레드별 히스토그램을 합칠 수 있다.")
+    @Test
+    public void merge() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(100);
+        second.record(1_000_000);
+
+        first.merge(second);
+
+        assertThat(first.getTotalCount()).isEqualTo(2L);
+        assertThat(first.getMaxValue()).isEqualTo(1_000_000L);
+        assertThat(first.valueAtPercentile(50)).isEqualTo(100L);
+    }
+
+    private static void assertWithinOnePercent(long actual, long expected) {
+        assertThat(Math.abs(actual - expected)).isLessThanOrEqualTo((long) (expected * 0.01));
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("동시 실행 limiter 테스트")
+class ConcurrencyLimiterTest {
+
+    @DisplayName("한도를 넘는 요청은 바로 거절된다.")
+    @Test
+    public void shedWhenOverLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getShedCount()).isEqualTo(1L);
+
+        limiter.release();
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @DisplayName("지연 시간이 늘어나면 한도가 줄고, 안정되면 다시 늘어난다.")
+    @Test
+    public void limitFollowsLatency() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 2, 100);
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        int stableLimit = limiter.getLimit();
+        assertThat(stableLimit).isGreaterThan(20);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(50)); // DB 가 느려짐
+        }
+        assertThat(limiter.getLimit()).isLessThan(stableLimit);
+    }
+
+    @DisplayName("여러 쓰레드가 동시에 샘플을 넣어도 막히지 않고, 겹친 샘플은 버린다.")
+    @Test
+    public void concurrentSamples() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 2, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    limiter.onSample(TimeUnit.MILLISECONDS.toNanos(5));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(limiter.getLimit()).isGreaterThan(1);
+        assertThat(limiter.getLimit()).isLessThan(101);
+
+        // 혼자 넣는 샘플은 버리지 않는다.
+        long skipped = limiter.getSkippedSamples();
+        limiter.onSample(TimeUnit.MILLISECONDS.toNanos(5));
+        assertThat(limiter.getSkippedSamples()).isEqualTo(skipped);
+    }
+}
@@ -0,0 +1,245 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("커넥션 풀 레인 테스트")
+class ConnectionPoolTest {
+
+    private static List<Connection> connections(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> (Connection) Proxy.newProxyInstance(
+                        Connection.class.getClassLoader(),
+                        new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> switch (method.getName()) {
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            default -> null;
+                        }))
+                .collect(Collectors.toList());
+    }
+
+    @DisplayName("BATCH 레인은 INTERACTIVE 예약분을 가져가지 못한다.")
+    @Test
+    public void batchCannotTakeReservedShare() throws Exception {
+        ConnectionPool pool = new ConnectionPool(connections(2));
+        pool.setReservedShare(ConnectionLane.INTERACTIVE, 0.5);
+
+        pool.take(ConnectionLane.BATCH);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Connection> secondBatch = executor.submit(() -> pool.take(ConnectionLane.BATCH));
+
+        Thread.sleep(200);
+        assertThat(secondBatch.isDone()).isFalse();
+
+        // 예약분은 INTERACTIVE 가 바로 가져갈 수 있다.
+        Connection interactive = pool.take(ConnectionLane.INTERACTIVE);
+        assertThat(interactive).isNotNull();
+
+        pool.offer(interactive);
+        // INTERACTIVE 가 반납하면 예약분은 다시 비어 있는 상태라 BATCH 는 계속 기다린다.
+        Thread.sleep(200);
+        assertThat(secondBatch.isDone()).isFalse();
+
+        executor.shutdownNow();
+    }
+
+    @DisplayName("반납된 커넥션은 INTERACTIVE 대기자에게 먼저 넘어간다.")
+    @Test
+    public void interactiveWaiterServedFirst() throws Exception {
+        ConnectionPool pool = new ConnectionPool(connections(1));
+        Connection held = pool.take(ConnectionLane.INTERACTIVE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch batchAcquired = new CountDownLatch(1);
+        CountDownLatch interactiveAcquired = new CountDownLatch(1);
+
+        executor.submit(() -> {
+            pool.offer(awaitTake(pool, ConnectionLane.BATCH, batchAcquired));
+            return null;
+        });
+        Thread.sleep(100); // BATCH 가 먼저 줄을 선다.
+        executor.submit(() -> {
+            Connection conn = awaitTake(pool, ConnectionLane.INTERACTIVE, interactiveAcquired);
+            Thread.sleep(200);
+            pool.offer(conn);
+            return null;
+        });
+        Thread.sleep(100);
+
+        pool.offer(held);
+
+        assertThat(interactiveAcquired.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(batchAcquired.getCount()).isEqualTo(1);
+        assertThat(batchAcquired.await(1, TimeUnit.SECONDS)).isTrue();
+
+        executor.shutdown();
+    }
+
+    @DisplayName("풀은 비어서 시작해 필요할 때 열고, 전체 한도를 넘으면 다른 풀이 내준 자리를 기다린다.")
+    @Test
+    public void sharedBudget() throws Exception {
+        AtomicInteger opened = new AtomicInteger();
+        SqlWork<Connection> opener = () -> {
+            opened.incrementAndGet();
+            return connections(1).get(0);
+        };
+        ExecutorService housekeeping = Executors.newSingleThreadExecutor();
+        ConnectionPool[] first = new ConnectionPool[1];
+        // 한도가 차면 첫 번째 풀에서 놀고 있는 커넥션을 하나 닫는다.
+        ConnectionBudget budget = new ConnectionBudget(2, () -> housekeeping.execute(() -> first[0].evictIdle(0, 1)));
+        first[0] = new ConnectionPool(2, opener, budget);
+        ConnectionPool second = new ConnectionPool(2, opener, budget);
+
+        assertThat(first[0].openCount()).isZero();
+        Connection a = first[0].take(ConnectionLane.INTERACTIVE);
+        Connection b = first[0].take(ConnectionLane.INTERACTIVE);
+        assertThat(opened.get()).isEqualTo(2);
+        assertThat(budget.getUsed()).isEqualTo(2);
+
+        assertThat(second.poll(ConnectionLane.INTERACTIVE, TimeUnit.MILLISECONDS.toNanos(200))).isNull();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Connection> waiting = executor.submit(() -> second.take(ConnectionLane.INTERACTIVE));
+        Thread.sleep(100);
+        assertThat(waiting.isDone()).isFalse();
+
+        first[0].offer(a);
+        assertThat(waiting.get(1, TimeUnit.SECONDS)).isNotNull();
+        assertThat(first[0].openCount()).isEqualTo(1);
+        assertThat(second.openCount()).isEqualTo(1);
+        assertThat(budget.getUsed()).isEqualTo(2);
+
+        first[0].offer(b);
+        assertThat(first[0].evictIdle(0, Integer.MAX_VALUE)).isEqualTo(1);
+        assertThat(first[0].openCount()).isZero();
+        assertThat(budget.getUsed()).isEqualTo(1);
+
+        executor.shutdown();
+        housekeeping.shutdown();
+    }
+
+    @DisplayName("자리를 여러 번 못 잡은 풀도 전체 한도의 줄에는 한 번만 선다.")
+    @Test
+    public void starvedPoolQueuedOnce() {
+        ConnectionBudget budget = new ConnectionBudget(1, () -> {});
+        ConnectionPool first = new ConnectionPool(1, () -> connections(1).get(0), budget);
+        ConnectionPool second = new ConnectionPool(1, () -> connections(1).get(0), budget);
+
+        assertThat(budget.tryReserve(first)).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThat(budget.tryReserve(second)).isFalse();
+        }
+        assertThat(budget.starvedCount()).isEqualTo(1);
+
+        // 줄에서 빠진 뒤 다시 못 잡으면 다시 선다.
+        budget.release();
+        assertThat(budget.hasStarved()).isFalse();
+        assertThat(budget.tryReserve(first)).isTrue();
+        assertThat(budget.tryReserve(second)).isFalse();
+        assertThat(budget.starvedCount()).isEqualTo(1);
+    }
+
+    @DisplayName("크기를 늘리면 기다리던 쓰레드가 새 커넥션을 받고, 줄이면 남는 커넥션을 닫는다.")
+    @Test
+    public void resize() throws Exception {
+        AtomicInteger opened = new AtomicInteger();
+        ConnectionPool pool = new ConnectionPool(connections(1), () -> {
+            opened.incrementAndGet();
+            return connections(1).get(0);
+        });
+        Connection held = pool.take(ConnectionLane.INTERACTIVE);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Connection> waiting = executor.submit(() -> pool.take(ConnectionLane.INTERACTIVE));
+        Thread.sleep(100);
+        assertThat(waiting.isDone()).isFalse();
+
+        pool.resize(2);
+        Connection grown = waiting.get(1, TimeUnit.SECONDS);
+        assertThat(opened.get()).isEqualTo(1);
+
+        ConnectionPool.Demand demand = pool.sampleDemand();
+        assertThat(demand.getPeakWaiters()).isEqualTo(1);
+        assertThat(demand.getPeakInUse()).isEqualTo(2);
+        assertThat(demand.meanWaitNanos()).isGreaterThan(0);
+
+        // 빌려 간 커넥션은 반납될 때 닫는다.
+        pool.resize(1);
+        pool.offer(grown);
+        assertThat(pool.openCount()).isEqualTo(1);
+        pool.offer(held);
+        assertThat(pool.idleCount()).isEqualTo(1);
+
+        executor.shutdown();
+    }
+
+    @DisplayName("빌려 간 커넥션의 반납만 받고, 두 번째 반납은 받지 않았다고 알린다.")
+    @Test
+    public void offerOnlyBorrowed() throws Exception {
+        List<Connection> connections = connections(1);
+        ConnectionPool pool = new ConnectionPool(connections, () -> connections(1).get(0));
+
+        assertThat(pool.offer(connections.get(0))).isFalse();
+
+        Connection conn = pool.take(ConnectionLane.INTERACTIVE);
+        assertThat(pool.offer(conn)).isTrue();
+        assertThat(pool.offer(conn)).isFalse();
+        assertThat(pool.idleCount()).isEqualTo(1);
+    }
+
+    @DisplayName("게이트를 거쳐도 INTERACTIVE 는 예약분을 기다리는 BATCH 뒤에 막히지 않는다.")
+    @Test
+    public void gateKeepsLanesApart() throws Exception {
+        ConnectionPool pool = new ConnectionPool(connections(2));
+        pool.setReservedShare(ConnectionLane.INTERACTIVE, 0.5);
+        AcquireGate gate = new AcquireGate(2);
+
+        Connection batch = gate.acquire(pool, ConnectionLane.BATCH, -1);
+
+        // 두 번째 BATCH 는 허가를 받고 풀에서 예약분이 비기를 기다리고, 세 번째는 게이트에서 기다린다.
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Connection> secondBatch = executor.submit(() -> gate.acquire(pool, ConnectionLane.BATCH, -1));
+        Future<Connection> thirdBatch = executor.submit(() -> gate.acquire(pool, ConnectionLane.BATCH, -1));
+        Thread.sleep(200);
+        assertThat(pool.waiterCount(ConnectionLane.BATCH)).isEqualTo(1);
+        assertThat(gate.availablePermits(ConnectionLane.BATCH)).isZero();
+
+        Connection interactive = gate.acquire(pool, ConnectionLane.INTERACTIVE, TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(interactive).isNotNull();
+        assertThat(gate.availablePermits(ConnectionLane.INTERACTIVE)).isEqualTo(1);
+
+        // 반납하면 빌려 간 레인의 허가만 돌아오고, 두 번 반납해도 늘지 않는다.
+        gate.release(pool, interactive);
+        gate.release(pool, interactive);
+        assertThat(gate.availablePermits(ConnectionLane.INTERACTIVE)).isEqualTo(2);
+        assertThat(secondBatch.isDone()).isFalse();
+
+        gate.release(pool, batch);
+        gate.release(pool, secondBatch.get(1, TimeUnit.SECONDS));
+        assertThat(thirdBatch.get(1, TimeUnit.SECONDS)).isNotNull();
+
+        executor.shutdown();
+    }
+
+    private static Connection awaitTake(ConnectionPool pool, ConnectionLane lane, CountDownLatch acquired) throws Exception {
+        Connection conn = pool.take(lane);
+        acquired.countDown();
+        return conn;
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.simpledb;
+
+import org.example.simpledb.article.Article;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Dialect 테스트")
+class DialectTest {
+
+    @DisplayName("H2 는 MySQL 기준 컬럼 타입을 자기 타입으로 바꾼다.")
+    @Test
+    public void h2ColumnType() {
+        H2Dialect dialect = new H2Dialect();
+
+        assertThat(dialect.columnType("INT UNSIGNED AUTO_INCREMENT")).isEqualTo("BIGINT GENERATED BY DEFAULT AS IDENTITY");
+        assertThat(dialect.columnType("BIT(1)")).isEqualTo("BOOLEAN");
+        assertThat(dialect.columnType("DATETIME")).isEqualTo("TIMESTAMP");
+        assertThat(dialect.columnType("VARCHAR(100)")).isEqualTo("VARCHAR(100)");
+    }
+
+    @DisplayName("여러 행 INSERT 문을 만든다.")
+    @Test
+    public void multiRowInsertSql() {
+        String sql = new MySqlDialect().multiRowInsertSql("article", List.of("title", "body"), 3);
+
+        assertThat(sql).isEqualTo("INSERT INTO article (title, body) VALUES (?, ?), (?, ?), (?, ?)");
+    }
+
+    @DisplayName("임베디드 DB 에서 DDL 생성, 대량 INSERT, 조회가 된다.")
+    @Test
+    public void embedded() throws SQLException {
+        SimpleDb simpleDb = SimpleDb.embedded("simpleDb__dialect");
+        simpleDb.generateDDL(Article.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (int no = 1; no <= 2_500; no++) {
+            rows.add(new Object[]{now, now, "제목%d".formatted(no), "내용%d".formatted(no), no > 3});
+        }
+        long inserted = simpleDb.bulkInsert("article", List.of("createdDate", "modifiedDate", "title", "body", "isBlind"), rows);
+        assertThat(inserted).isEqualTo(2_500);
+
+        Sql sql = simpleDb.genSql();
+        sql.append("INSERT INTO article")
+                .append("SET createdDate = NOW()")
+                .append(", modifiedDate = NOW()")
+                .append(", title = ?", "제목 new")
+                .append(", `body` = ?", "내용 new");
+        assertThat(sql.insert()).isEqualTo(2_501);
+
+        Sql countSql = simpleDb.genSql();
+        countSql.append("SELECT COUNT(*) FROM article WHERE isBlind = ?", false);
+        assertThat(countSql.selectLong()).isEqualTo(3L);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("엔티티 변경 감지 테스트")
+class EntityMetaTest {
+
+    static class Post {
+        @Column(type = "BIGINT AUTO_INCREMENT")
+        private Long id;
+        @Column(type = "VARCHAR(100)")
+        private String title;
+        @Column(type = "TEXT")
+        private String body;
+        @Column(type = "BIT(1)")
+        private Boolean isBlind;
+
+        private String memo; // @Column 이 아니면 저장하지 않는다.
+    }
+
+    static class VersionedPost {
+        @Column(type = "BIGINT AUTO_INCREMENT")
+        private Long id;
+        @Column(type = "VARCHAR(100)")
+        private String title;
+        @Version
+        @Column(type = "INT")
+        private Integer version;
+    }
+
+    @DisplayName("바뀐 필드만 SET 에 넣고, 같은 조합이면 같은 SQL 을 다시 쓴다.")
+    @Test
+    public void updateSql() {
+        EntityMeta meta = EntityMeta.of(Post.class);
+        assertThat(meta.getTable()).isEqualTo("post");
+        assertThat(meta.columnCount()).isEqualTo(3);
+
+        Post post = new Post();
+        post.id = 1L;
+        post.title = "제목";
+        post.body = "내용";
+        post.isBlind = false;
+        Object[] snapshot = meta.read(post);
+
+        post.title = "제목 수정";
+        post.isBlind = true;
+        post.memo = "무시";
+        Object[] current = meta.read(post);
+
+        long mask = EntityMeta.changedMask(snapshot, current);
+        assertThat(mask).isEqualTo(0b101L);
+        assertThat(meta.updateSql(mask)).isEqualTo("UPDATE post SET title = ?, isBlind = ? WHERE id = ?");
+        assertThat(meta.updateSql(mask)).isSameAs(meta.updateSql(0b101L));
+        assertThat(EntityMeta.select(current, mask, 1L)).containsExactly("제목 수정", true, 1L);
+
+        assertThat(EntityMeta.changedMask(current, meta.read(post))).isZero();
+    }
+
+    @DisplayName("INSERT 는 값이 있는 필드만 넣고, 생성된 id 를 채운다.")
+    @Test
+    public void insertSql() {
+        EntityMeta meta = EntityMeta.of(Post.class);
+
+        Post post = new Post();
+        post.body = "내용";
+        Object[] values = meta.read(post);
+
+        long mask = EntityMeta.nonNullMask(values);
+        assertThat(meta.insertSql(mask)).isEqualTo("INSERT INTO post (body) VALUES (?)");
+        assertThat(meta.insertSql(0)).isEqualTo("INSERT INTO post (id) VALUES (DEFAULT)");
+
+        meta.setId(post, 7);
+        assertThat(meta.getId(post)).isEqualTo(7L);
+    }
+
+    @DisplayName("스냅샷은 equals 가 아니라 객체 동일성으로 찾는다.")
+    @Test
+    public void snapshotsByIdentity() {
+        EntitySnapshots snapshots = new EntitySnapshots();
+        String first = new String("같은 값");
+        String second = new String("같은 값");
+
+        snapshots.put(first, new Object[]{1});
+
+        assertThat(snapshots.get(first)).containsExactly(1);
+        assertThat(snapshots.get(second)).isNull();
+        assertThat(snapshots.size()).isEqualTo(1);
+    }
+
+    @DisplayName("@Version 필드는 변경 감지에서 빠지고 SET 과 WHERE 에 늘 붙는다.")
+    @Test
+    public void versionSql() {
+        EntityMeta meta = EntityMeta.of(VersionedPost.class);
+        assertThat(meta.hasVersion()).isTrue();
+        assertThat(meta.columnCount()).isEqualTo(1);
+
+        assertThat(meta.updateSql(0b1L)).isEqualTo("UPDATE versionedpost SET title = ?, version = ? WHERE id = ? AND version = ?");
+        assertThat(meta.insertSql(0b1L)).isEqualTo("INSERT INTO versionedpost (title, version) VALUES (?, ?)");
+        assertThat(meta.insertSql(0)).isEqualTo("INSERT INTO versionedpost (version) VALUES (?)");
+
+        VersionedPost post = new VersionedPost();
+        assertThat(meta.getVersion(post)).isNull();
+        meta.setVersion(post, 3);
+        assertThat(post.version).isEqualTo(3);
+    }
+}
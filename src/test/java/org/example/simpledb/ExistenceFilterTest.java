@@ -0,0 +1,43 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("음성 캐시 블룸 필터 테스트")
+class ExistenceFilterTest {
+
+    @DisplayName("넣은 키는 항상 있다고 하고, 없는 키는 대부분 없다고 한다.")
+    @Test
+    public void bloom() {
+        ExistenceFilter.Bloom bloom = new ExistenceFilter.Bloom(10_000);
+        for (long id = 1; id <= 10_000; id++) {
+            bloom.add(ExistenceFilter.hash(id));
+        }
+        for (long id = 1; id <= 10_000; id++) {
+            assertThat(bloom.mightContain(ExistenceFilter.hash(id))).isTrue();
+        }
+
+        int falsePositives = 0;
+        for (long id = 10_001; id <= 110_000; id++) {
+            if (bloom.mightContain(ExistenceFilter.hash(id))) {
+                falsePositives++;
+            }
+        }
+        // 목표 오탐률 1% 에 여유를 둔다.
+        assertThat(falsePositives < 2_000).isTrue();
+        assertThat(bloom.isFull()).isFalse();
+
+        bloom.add(ExistenceFilter.hash(110_001L));
+        assertThat(bloom.isFull()).isTrue();
+    }
+
+    @DisplayName("정수 키는 타입이 달라도 같은 키로 본다.")
+    @Test
+    public void normalize() {
+        assertThat(BatchLoader.normalize(7)).isEqualTo(BatchLoader.normalize(7L));
+        assertThat(BatchLoader.normalize(new java.math.BigInteger("7"))).isEqualTo(7L);
+        assertThat(BatchLoader.normalize("7")).isEqualTo("7");
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.simpledb;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * DB 없이 행 인코딩을 시험하기 위한 메모리 ResultSet. 테스트에서 쓰는 메서드만 구현한다.
+ */
+class FakeResultSet {
+
+    static ResultSet of(String[] names, int[] sqlTypes, Object[][] rows) {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> names.length;
+                    case "getColumnName", "getColumnLabel" -> names[(int) args[0] - 1];
+                    case "getColumnType" -> sqlTypes[(int) args[0] - 1];
+                    case "isSigned" -> true;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+
+        int[] cursor = {-1};
+        boolean[] wasNull = {false};
+
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.length;
+                        case "getMetaData":
+                            return metaData;
+                        case "wasNull":
+                            return wasNull[0];
+                        case "close":
+                            return null;
+                        default:
+                    }
+
+                    Object value = rows[cursor[0]][(int) args[0] - 1];
+                    wasNull[0] = value == null;
+                    return switch (method.getName()) {
+                        case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+                        case "getDouble" -> value == null ? 0d : ((Number) value).doubleValue();
+                        case "getBoolean" -> value != null && (Boolean) value;
+                        case "getBigDecimal" -> (BigDecimal) value;
+                        case "getString" -> value == null ? null : value.toString();
+                        case "getBytes" -> (byte[]) value;
+                        case "getTimestamp" -> value == null ? null : Timestamp.valueOf((LocalDateTime) value);
+                        case "getDate" -> value == null ? null : Date.valueOf((LocalDate) value);
+                        case "getTime" -> value == null ? null : Time.valueOf((LocalTime) value);
+                        case "getObject" -> value;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    };
+                });
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("FetchSizeAdvisor 테스트")
+class FetchSizeAdvisorTest {
+
+    @DisplayName("값만 다른 SELECT 는 같은 모양으로 묶고, 쓰기 쿼리는 모양을 만들지 않는다.")
+    @Test
+    public void shapeOf() {
+        FetchSizeAdvisor advisor = new FetchSizeAdvisor();
+
+        FetchSizeAdvisor.Shape shape = advisor.shapeOf("SELECT * FROM article WHERE id = 1");
+
+        assertThat(advisor.shapeOf("SELECT * FROM article WHERE id = 2")).isSameAs(shape);
+        assertThat(advisor.shapeOf("UPDATE article SET title = 'a' WHERE id = 1")).isNull();
+        assertThat(advisor.getShapeCount()).isEqualTo(1);
+    }
+
+    @DisplayName("작은 결과는 한 번에 받고, 큰 결과는 행 수에 맞춰 나눠 받는다.")
+    @Test
+    public void fetchSize() {
+        FetchSizeAdvisor advisor = new FetchSizeAdvisor();
+        FetchSizeAdvisor.Shape lookup = advisor.shapeOf("SELECT * FROM article WHERE id = ?");
+        FetchSizeAdvisor.Shape scan = advisor.shapeOf("SELECT * FROM article WHERE createdDate > ?");
+        FetchSizeAdvisor.Shape export = advisor.shapeOf("SELECT * FROM article");
+
+        assertThat(lookup.fetchSize()).isEqualTo(-1);
+
+        lookup.record(1);
+        scan.record(1_000);
+        export.record(1_000_000);
+
+        assertThat(lookup.fetchSize()).isEqualTo(0);
+        assertThat(scan.fetchSize()).isEqualTo(2_048);
+        assertThat(export.fetchSize()).isEqualTo(FetchSizeAdvisor.MAX_FETCH_SIZE);
+    }
+
+    @DisplayName("가끔 큰 결과를 내는 쿼리는 작은 결과가 이어져도 천천히 줄인다.")
+    @Test
+    public void peakDecays() {
+        FetchSizeAdvisor.Shape shape = new FetchSizeAdvisor().shapeOf("SELECT * FROM article WHERE title LIKE ?");
+
+        shape.record(1_000);
+        shape.record(1);
+        assertThat(shape.fetchSize()).isEqualTo(2_048);
+
+        for (int i = 0; i < 50; i++) {
+            shape.record(1);
+        }
+        assertThat(shape.fetchSize()).isEqualTo(0);
+    }
+
+    @DisplayName("MySQL 은 커서 fetch 를 켠 경우에만 fetch size 를 바꾼다.")
+    @Test
+    public void mysqlNeedsCursorFetch() {
+        MySqlDialect dialect = new MySqlDialect();
+        SimpleDbConfig plain = SimpleDbConfig.builder().dbName("simpleDb__test").build();
+        SimpleDbConfig analytics = SimpleDbConfig.builder().dbName("simpleDb__test").profile("analytics").build();
+
+        assertThat(dialect.adaptiveFetchSize(2_048, plain)).isEqualTo(-1);
+        assertThat(dialect.adaptiveFetchSize(2_048, analytics)).isEqualTo(2_048);
+        assertThat(dialect.adaptiveFetchSize(0, analytics)).isEqualTo(0);
+    }
+}
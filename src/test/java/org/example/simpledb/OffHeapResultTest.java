@@ -0,0 +1,72 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("힙 밖 결과 버퍼 테스트")
+class OffHeapResultTest {
+
+    private static final String[] NAMES = {"id", "title", "score", "amount", "isBlind", "createdDate"};
+    private static final int[] TYPES = {Types.BIGINT, Types.VARCHAR, Types.DOUBLE, Types.DECIMAL, Types.BIT, Types.TIMESTAMP};
+
+    @DisplayName("타입별 접근자로 값과 NULL 을 그대로 읽는다.")
+    @Test
+    public void typedAccess() throws SQLException {
+        LocalDateTime createdDate = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000);
+        ResultSet rs = FakeResultSet.of(NAMES, TYPES, new Object[][]{
+                {1L, "제목1", 1.5, new BigDecimal("12.340"), true, createdDate},
+                {2L, null, null, null, null, null},
+        });
+
+        try (OffHeapResult result = OffHeapResult.read(rs)) {
+            assertThat(result.size()).isEqualTo(2);
+
+            int title = result.column("title");
+            assertThat(result.getLong(0, 0)).isEqualTo(1L);
+            assertThat(result.getString(0, title)).isEqualTo("제목1");
+            assertThat(result.getDouble(0, 2)).isEqualTo(1.5);
+            assertThat(result.getBigDecimal(0, 3)).isEqualTo(new BigDecimal("12.340"));
+            assertThat(result.getBoolean(0, 4)).isTrue();
+            assertThat(result.getLocalDateTime(0, 5)).isEqualTo(createdDate);
+
+            assertThat(result.isNull(1, title)).isTrue();
+            assertThat(result.getString(1, title)).isNull();
+            assertThat(result.getDouble(1, 2)).isEqualTo(0.0);
+            assertThat(result.getLocalDateTime(1, 5)).isNull();
+
+            Row row = result.getRow(0);
+            assertThat(row.get("id")).isEqualTo(1L);
+            assertThat(row.get("title")).isEqualTo("제목1");
+            assertThat(row.get("isBlind")).isEqualTo(true);
+
+            assertThatThrownBy(() -> result.getLong(0, title)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @DisplayName("청크보다 큰 행과 많은 행도 담는다.")
+    @Test
+    public void largeRows() throws SQLException {
+        String big = "가".repeat(600_000); // UTF-8 로 1.8MB
+        Object[][] rows = new Object[5_000][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{(long) i, i == 10 ? big : "제목" + i, null, null, false, null};
+        }
+
+        try (OffHeapResult result = OffHeapResult.read(FakeResultSet.of(NAMES, TYPES, rows))) {
+            assertThat(result.size()).isEqualTo(5_000);
+            assertThat(result.getString(10, 1)).isEqualTo(big);
+            assertThat(result.getString(4_999, 1)).isEqualTo("제목4999");
+            assertThat(result.getLong(4_999, 0)).isEqualTo(4_999L);
+            assertThat(result.getOffHeapBytes()).isGreaterThan(big.length() * 3L);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("PoolAutoScaler 테스트")
+class PoolAutoScalerTest {
+
+    private static final long MILLI = 1_000_000;
+
+    private static ConnectionPool.Demand waiting(int capacity, long waitMillis, int peakWaiters) {
+        return new ConnectionPool.Demand(capacity, capacity, 10, 10 * waitMillis * MILLI, peakWaiters, capacity);
+    }
+
+    private static ConnectionPool.Demand idle(int capacity, int peakInUse) {
+        return new ConnectionPool.Demand(capacity, capacity, 10, 0, 0, peakInUse);
+    }
+
+    @DisplayName("대기가 연달아 기준을 넘어야 늘리고, 최대 크기를 넘지 않는다.")
+    @Test
+    public void grow() {
+        PoolAutoScaler scaler = new PoolAutoScaler(2, 8);
+
+        assertThat(scaler.decide(waiting(4, 50, 0))).isEqualTo(4);
+        assertThat(scaler.decide(waiting(4, 0, 3))).isEqualTo(6);
+
+        assertThat(scaler.decide(waiting(6, 50, 5))).isEqualTo(6);
+        assertThat(scaler.decide(waiting(6, 50, 5))).isEqualTo(8);
+        assertThat(scaler.decide(waiting(8, 50, 5))).isEqualTo(8);
+        assertThat(scaler.decide(waiting(8, 50, 5))).isEqualTo(8);
+        assertThat(scaler.getResizeCount()).isEqualTo(2);
+    }
+
+    @DisplayName("기준을 오르내리는 수요에는 크기를 바꾸지 않는다.")
+    @Test
+    public void noFlapping() {
+        PoolAutoScaler scaler = new PoolAutoScaler(2, 8, Duration.ofMillis(10), 2, Duration.ofSeconds(3));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(scaler.decide(waiting(4, 50, 0))).isEqualTo(4);
+            assertThat(scaler.decide(idle(4, 1))).isEqualTo(4);
+        }
+        assertThat(scaler.getResizeCount()).isZero();
+    }
+
+    @DisplayName("절반 이하로 쓰는 상태가 이어져야 줄이고, 최소 크기 아래로는 줄이지 않는다.")
+    @Test
+    public void shrink() {
+        PoolAutoScaler scaler = new PoolAutoScaler(3, 8, Duration.ofMillis(10), 2, Duration.ofSeconds(3));
+
+        assertThat(scaler.decide(idle(8, 4))).isEqualTo(8);
+        assertThat(scaler.decide(idle(8, 4))).isEqualTo(8);
+        assertThat(scaler.decide(idle(8, 5))).isEqualTo(8); // 절반을 넘게 쓰면 처음부터 다시 센다.
+        assertThat(scaler.decide(idle(8, 4))).isEqualTo(8);
+        assertThat(scaler.decide(idle(8, 4))).isEqualTo(8);
+        assertThat(scaler.decide(idle(8, 4))).isEqualTo(6);
+
+        for (int i = 0; i < 2; i++) {
+            scaler.decide(idle(6, 0));
+        }
+        assertThat(scaler.decide(idle(6, 0))).isEqualTo(5);
+        for (int i = 0; i < 2; i++) {
+            scaler.decide(idle(5, 0));
+        }
+        assertThat(scaler.decide(idle(5, 0))).isEqualTo(4);
+        for (int i = 0; i < 2; i++) {
+            scaler.decide(idle(4, 0));
+        }
+        assertThat(scaler.decide(idle(4, 0))).isEqualTo(3);
+        for (int i = 0; i < 5; i++) {
+            assertThat(scaler.decide(idle(3, 0))).isEqualTo(3);
+        }
+    }
+
+    @DisplayName("범위 밖의 크기는 바로 범위 안으로 맞춘다.")
+    @Test
+    public void clamp() {
+        PoolAutoScaler scaler = new PoolAutoScaler(2, 8);
+
+        assertThat(scaler.decide(idle(1, 0))).isEqualTo(2);
+        assertThat(scaler.decide(idle(20, 0))).isEqualTo(8);
+        assertThatThrownBy(() -> new PoolAutoScaler(0, 8)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PoolAutoScaler(9, 8)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
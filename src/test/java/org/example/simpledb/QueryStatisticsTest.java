@@ -0,0 +1,76 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("쿼리 통계 테스트")
+class QueryStatisticsTest {
+
+    @DisplayName("리터럴과 IN 목록은 같은 fingerprint 로 묶인다.")
+    @Test
+    public void fingerprint() {
+        String a = SqlFingerprint.of("SELECT * FROM article WHERE id = 1 AND title = 'a''b'");
+        String b = SqlFingerprint.of("select *\n  from article\n where id = 42 and title = \"x\" -- 주석");
+        assertThat(a).isEqualTo(b).isEqualTo("select*from article where id=? and title=?");
+
+        assertThat(SqlFingerprint.of("SELECT id FROM article WHERE id IN (1, 2, 3)"))
+                .isEqualTo(SqlFingerprint.of("SELECT id FROM article WHERE id IN (?)"))
+                .isEqualTo("select id from article where id in(?+)");
+
+        // 식별자 안의 숫자는 그대로 둔다.
+        assertThat(SqlFingerprint.of("SELECT col1 FROM t2")).isEqualTo("select col1 from t2");
+    }
+
+    @DisplayName("fingerprint 별로 호출 수, 시간, 행 수, 에러를 모으고 총 시간 순으로 정렬한다.")
+    @Test
+    public void topByTotalTime() {
+        QueryStatistics statistics = new QueryStatistics();
+
+        StatementContext fast = new StatementContext("SELECT * FROM article WHERE id = 1", new Object[0]);
+        fast.setRowCount(1);
+        for (int i = 0; i < 10; i++) {
+            statistics.afterExecute(fast, 1_000);
+        }
+
+        StatementContext slow = new StatementContext("SELECT * FROM article WHERE id > 5", new Object[0]);
+        slow.setRowCount(20);
+        statistics.afterExecute(slow, 50_000);
+        statistics.onError(slow, new SQLException("timeout"), 30_000);
+
+        List<QueryStats> top = statistics.topByTotalTime(1);
+        assertThat(top).hasSize(1);
+
+        QueryStats stats = top.get(0);
+        assertThat(stats.getFingerprint()).isEqualTo("select*from article where id>?");
+        assertThat(stats.getCalls()).isEqualTo(2);
+        assertThat(stats.getErrors()).isEqualTo(1);
+        assertThat(stats.getTotalNanos()).isEqualTo(80_000);
+        assertThat(stats.getMeanNanos()).isEqualTo(40_000);
+        assertThat(stats.getMaxNanos()).isEqualTo(50_000);
+        assertThat(stats.getRows()).isEqualTo(20);
+
+        assertThat(statistics.get("SELECT * FROM article WHERE id = 7").getCalls()).isEqualTo(10);
+    }
+
+    @DisplayName("fingerprint 가 상한을 넘으면 처음 보는 것은 other 하나로 합친다.")
+    @Test
+    public void fingerprintCap() {
+        QueryStatistics statistics = new QueryStatistics();
+        for (int i = 0; i < QueryStatistics.MAX_FINGERPRINTS + 5; i++) {
+            statistics.afterExecute(new StatementContext("SELECT col" + i + " FROM article", new Object[0]), 1_000);
+        }
+
+        assertThat(statistics.getFingerprintCount()).isEqualTo(QueryStatistics.MAX_FINGERPRINTS + 1);
+        assertThat(statistics.get("SELECT col0 FROM article").getCalls()).isEqualTo(1);
+        assertThat(statistics.get("SELECT col" + (QueryStatistics.MAX_FINGERPRINTS + 1) + " FROM article")).isNull();
+
+        QueryStats other = statistics.topByTotalTime(1).get(0);
+        assertThat(other.getFingerprint()).isEqualTo(QueryStatistics.OTHER);
+        assertThat(other.getCalls()).isEqualTo(5);
+    }
+}
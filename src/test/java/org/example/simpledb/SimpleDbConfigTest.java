@@ -0,0 +1,68 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("SimpleDbConfig 테스트")
+class SimpleDbConfigTest {
+
+    private static SimpleDbConfig.Builder base() {
+        return SimpleDbConfig.builder()
+                .host("localhost")
+                .username("wave")
+                .password("0913")
+                .dbName("simpleDb__test");
+    }
+
+    @DisplayName("프로필을 고르지 않으면 예전 기본값을 쓴다.")
+    @Test
+    public void defaults() {
+        SimpleDbConfig config = base().build();
+
+        assertThat(config.getPoolSize()).isEqualTo(1);
+        assertThat(config.getQueryTimeout()).isNull();
+        assertThat(config.getLeakTimeout()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(config.isServerPreparedStatements()).isFalse();
+    }
+
+    @DisplayName("직접 준 값은 호출 순서와 상관없이 프로필보다 우선한다.")
+    @Test
+    public void explicitOverridesProfile() {
+        SimpleDbConfig config = base()
+                .poolSize(20)
+                .profile("OLTP")
+                .build();
+
+        assertThat(config.getProfile()).isEqualTo(SimpleDbConfig.Profile.OLTP);
+        assertThat(config.getPoolSize()).isEqualTo(20);
+        assertThat(config.getQueryTimeout()).isEqualTo(Duration.ofSeconds(5));
+        assertThat(config.isStatementCache()).isTrue();
+    }
+
+    @DisplayName("함께 써야 하는 값이 어긋나면 만들지 않는다.")
+    @Test
+    public void validation() {
+        assertThatThrownBy(() -> base().poolSize(0).build()).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> base().profile("analytics").serverPreparedStatements(false).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> base().profile("batch").build()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @DisplayName("MySQL 드라이버 속성으로 옮기고, 요약에는 비밀번호를 가린다.")
+    @Test
+    public void driverProperties() {
+        SimpleDbConfig config = base().profile("bulk-load").build();
+        Properties properties = new MySqlDialect().driverProperties(config);
+
+        assertThat(properties.getProperty("rewriteBatchedStatements")).isEqualTo("true");
+        assertThat(properties.getProperty("useCompression")).isEqualTo("true");
+        assertThat(properties.getProperty("useServerPrepStmts")).isEqualTo("false");
+        assertThat(config.describe().contains("0913")).isFalse();
+    }
+}
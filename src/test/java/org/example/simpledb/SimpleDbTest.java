@@ -1,16 +1,29 @@
 package org.example.simpledb;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.simpledb.article.Article;
 import org.junit.jupiter.api.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.*;
@@ -236,6 +249,529 @@ class SimpleDbTest {
         });
     }
 
+    @DisplayName("레코드 3개 Row 조회 테스트")
+    @Test
+    public void selectRowsAsRows() throws SQLException {
+        Sql sql = simpleDb.genSql();
+
+        sql.append("SELECT * FROM article ORDER BY id ASC LIMIT 3");
+
+        if (simpleDb.isDevMode()) {
+            System.out.println(sql.getSql());
+        }
+
+        List<Row> rows = sql.selectRowsAsRows();
+
+        assertThat(rows).hasSize(3);
+        IntStream.range(0, rows.size()).forEach(i -> {
+            long id = i + 1;
+
+            Row row = rows.get(i);
+
+            assertThat(row.getColumns()).isSameAs(rows.get(0).getColumns());
+            assertThat(row.get("id")).isEqualTo(id);
+            assertThat(row.get("title")).isEqualTo("제목%d".formatted(id));
+            assertThat(row.get("body")).isEqualTo("내용%d".formatted(id));
+            assertThat(row.get("isBlind")).isEqualTo(false);
+        });
+    }
+
+    @DisplayName("조회 결과 JSON 스트리밍 테스트")
+    @Test
+    public void writeJson() throws SQLException, IOException {
+        Sql sql = simpleDb.genSql();
+
+        sql.append("SELECT * FROM article ORDER BY id ASC LIMIT 3");
+
+        if (simpleDb.isDevMode()) {
+            System.out.println(sql.getSql());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rowCount = sql.writeJson(out);
+
+        JsonNode articles = new ObjectMapper().readTree(out.toByteArray());
+
+        assertThat(rowCount).isEqualTo(3);
+        assertThat(articles.size()).isEqualTo(3);
+        assertThat(articles.get(0).get("id").asLong()).isEqualTo(1L);
+        assertThat(articles.get(0).get("title").asText()).isEqualTo("제목1");
+        assertThat(articles.get(0).get("createdDate").isTextual()).isTrue();
+        assertThat(articles.get(0).get("isBlind").asBoolean()).isFalse();
+    }
+
+    @DisplayName("Publisher 로 요청한 만큼씩 레코드 조회 테스트")
+    @Test
+    public void publish() throws InterruptedException {
+        Sql sql = simpleDb.genSql();
+
+        sql.append("SELECT * FROM article ORDER BY id ASC");
+
+        List<StatementContext> executed = new CopyOnWriteArrayList<>();
+        StatementInterceptor interceptor = new StatementInterceptor() {
+            @Override
+            public void beforeExecute(StatementContext context) {
+                executed.add(context);
+            }
+        };
+        simpleDb.addInterceptor(interceptor);
+
+        List<Article> received = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        sql.publish(Article.class).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Article item) {
+                received.add(item);
+                subscription.request(1); // 한 건씩 요청
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throwable.printStackTrace();
+                completed.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+        simpleDb.removeInterceptor(interceptor);
+        assertThat(received).hasSize(6);
+        assertThat(received.get(0).getTitle()).isEqualTo("제목1");
+        assertThat(simpleDb.getAvailableConnectionCount()).isEqualTo(1);
+
+        // 커서 fetch 가 꺼진 MySQL 에서는 행 단위 스트리밍으로 받아야 결과를 한 번에 메모리에 올리지 않는다.
+        assertThat(executed).hasSize(1);
+        assertThat(executed.get(0).getFetchSize()).isEqualTo(Integer.MIN_VALUE);
+    }
+
+    @DisplayName("커넥션을 timeout 안에 받지 못한 Publisher 는 onError 로 끝난다.")
+    @Test
+    public void publishTimeout() throws Exception {
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        Connection conn = simpleDb.getConnection(); // 하나뿐인 커넥션을 쥐고 있는다.
+        try {
+            Sql sql = simpleDb.genSql()
+                    .append("SELECT * FROM article ORDER BY id ASC")
+                    .timeout(Duration.ofMillis(300));
+
+            sql.publish(Article.class).subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(Article item) {
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    errors.add(throwable);
+                    completed.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.countDown();
+                }
+            });
+
+            assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            simpleDb.releaseConnection(conn);
+        }
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0)).isInstanceOf(SQLTimeoutException.class);
+    }
+
+    @DisplayName("onNext 에서 예외를 던진 구독은 취소되고 커넥션을 돌려준다.")
+    @Test
+    public void publishSubscriberFailure() throws InterruptedException {
+        Sql sql = simpleDb.genSql();
+        sql.append("SELECT * FROM article ORDER BY id ASC");
+
+        CountDownLatch thrown = new CountDownLatch(1);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+        sql.publish(Article.class).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Article item) {
+                thrown.countDown();
+                throw new IllegalStateException("구독자 오류");
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                errors.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        assertThat(thrown.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 100 && simpleDb.getAvailableConnectionCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(simpleDb.getAvailableConnectionCount()).isEqualTo(1);
+        assertThat(errors).hasSize(0);
+    }
+
+    @DisplayName("쿼리 타임아웃 초과시 서버에서 취소 테스트")
+    @Test
+    public void queryTimeout() throws SQLException {
+        long cancelledBefore = simpleDb.getCancelledStatementCount();
+
+        Sql sql = simpleDb.genSql()
+                .timeout(Duration.ofMillis(500));
+
+        sql.append("SELECT SLEEP(3)");
+
+        long startTime = System.currentTimeMillis();
+        assertThatThrownBy(sql::selectLong).isInstanceOf(SQLTimeoutException.class);
+        long elapsedTime = System.currentTimeMillis() - startTime;
+
+        assertThat(elapsedTime).isLessThan(2000L);
+        assertThat(simpleDb.getCancelledStatementCount()).isGreaterThan(cancelledBefore);
+        assertThat(simpleDb.getAvailableConnectionCount()).isEqualTo(1);
+    }
+
+    @DisplayName("시간 안에 다 읽지 못한 selectRows 는 읽은 데까지 돌려주지 않고 실패하는 테스트")
+    @Test
+    public void selectRowsTimeout() {
+        // 행마다 0.2초씩 걸려 6행을 다 읽기 전에 시간이 다 된다.
+        Sql sql = simpleDb.genSql()
+                .timeout(Duration.ofMillis(500))
+                .append("SELECT * FROM article WHERE SLEEP(0.2) = 0 ORDER BY id ASC");
+
+        assertThatThrownBy(() -> sql.selectRows(Article.class)).isInstanceOf(SQLTimeoutException.class);
+        assertThat(simpleDb.getAvailableConnectionCount()).isEqualTo(1);
+    }
+
+    @DisplayName("합친 읽기도 시간 초과를 잘린 결과가 아니라 예외로 넘기는 테스트")
+    @Test
+    public void coalescedTimeout() {
+        Sql sql = simpleDb.genSql()
+                .timeout(Duration.ofMillis(500))
+                .coalesce()
+                .append("SELECT * FROM article WHERE SLEEP(0.2) = 0 ORDER BY id ASC");
+
+        assertThatThrownBy(sql::selectRowsAsRows).isInstanceOf(SQLTimeoutException.class);
+    }
+
+    @DisplayName("인터셉터로 실행 SQL, 파라미터, 행 수 확인 테스트")
+    @Test
+    public void statementInterceptor() throws SQLException {
+        List<StatementContext> executed = new CopyOnWriteArrayList<>();
+        StatementInterceptor interceptor = new StatementInterceptor() {
+            @Override
+            public void afterExecute(StatementContext context, long elapsedNanos) {
+                executed.add(context);
+            }
+        };
+        simpleDb.addInterceptor(interceptor);
+
+        try {
+            Sql sql = simpleDb.genSql();
+            sql.append("SELECT * FROM article")
+                    .append("WHERE id <= ?", 3);
+
+            sql.selectRowsAsRows();
+        } finally {
+            simpleDb.removeInterceptor(interceptor);
+        }
+
+        assertThat(executed).hasSize(1);
+        assertThat(executed.get(0).getSql()).isEqualTo(" SELECT * FROM article WHERE id <= ?");
+        assertThat(executed.get(0).getParameters()).containsExactly(3);
+        assertThat(executed.get(0).getRowCount()).isEqualTo(3L);
+    }
+
+    @DisplayName("느린 쿼리 로그 테스트")
+    @Test
+    public void slowQueryLog() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SlowQueryLog slowQueryLog = new SlowQueryLog(simpleDb, Duration.ZERO, new PrintStream(out, true, StandardCharsets.UTF_8));
+        simpleDb.addInterceptor(slowQueryLog);
+
+        try {
+            Sql sql = simpleDb.genSql();
+            sql.append("SELECT * FROM article")
+                    .append("WHERE title = ?", "제목1");
+
+            sql.selectRowsAsRows();
+        } finally {
+            simpleDb.removeInterceptor(slowQueryLog);
+            slowQueryLog.close();
+        }
+
+        String log = out.toString(StandardCharsets.UTF_8);
+        assertThat(log).contains("sql: SELECT * FROM article WHERE title = ?");
+        assertThat(log).contains("parameters: [제목1]");
+        // title 에는 인덱스가 없으므로 article 전체를 훑는다.
+        assertThat(log).contains("table=article").contains("type=ALL");
+    }
+
+    @DisplayName("힙 밖 버퍼로 다건 조회 테스트")
+    @Test
+    public void selectOffHeap() throws SQLException {
+        Sql sql = simpleDb.genSql();
+        sql.append("SELECT * FROM article ORDER BY id ASC");
+
+        try (OffHeapResult result = sql.selectOffHeap()) {
+            assertThat(result.size()).isEqualTo(6);
+
+            int title = result.column("title");
+            int isBlind = result.column("isBlind");
+            for (int row = 0; row < result.size(); row++) {
+                assertThat(result.getLong(row, result.column("id"))).isEqualTo(row + 1L);
+                assertThat(result.getString(row, title)).isEqualTo("제목%d".formatted(row + 1));
+                assertThat(result.getBoolean(row, isBlind)).isEqualTo(row + 1 > 3);
+            }
+            assertThat(result.getRow(0).get("body")).isEqualTo("내용1");
+        }
+    }
+
+    @DisplayName("키 범위를 나눠 병렬로 조회하는 테스트")
+    @Test
+    public void parallelScan() throws SQLException {
+        Sql sql = simpleDb.genSql();
+        sql.append("SELECT * FROM article")
+                .append("WHERE isBlind = ?", false);
+
+        List<Article> articles = sql.parallelScan(Article.class, "id", 4);
+
+        assertThat(articles).hasSize(3);
+        assertThat(articles.stream().map(Article::getId).toList()).containsExactly(1L, 2L, 3L);
+
+        Sql allSql = simpleDb.genSql();
+        allSql.append("SELECT * FROM article");
+        List<Article> streamed = new CopyOnWriteArrayList<>();
+        allSql.parallelScan(Article.class, "id", 4, streamed::addAll);
+
+        assertThat(streamed).hasSize(6);
+
+        // 범위 하나에 여러 행이 들어가도 키 순서로 받는다.
+        Sql singleSql = simpleDb.genSql();
+        singleSql.append("SELECT * FROM article");
+        assertThat(singleSql.parallelScan(Article.class, "id", 1).stream().map(Article::getId).toList())
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+    }
+
+    @DisplayName("호출 쓰레드가 하나뿐인 커넥션을 쥐고 있으면 병렬 스캔은 멈추지 않고 시간 초과로 끝난다.")
+    @Test
+    public void parallelScanTimeout() throws SQLException {
+        simpleDb.withConnection(() -> {
+            Sql sql = simpleDb.genSql()
+                    .append("SELECT * FROM article")
+                    .timeout(Duration.ofMillis(300));
+
+            assertThatThrownBy(() -> sql.parallelScan(Article.class, "id", 4)).isInstanceOf(SQLTimeoutException.class);
+            return null;
+        });
+    }
+
+    @DisplayName("엔티티 저장 시 바뀐 필드만 UPDATE 하는 테스트")
+    @Test
+    public void saveEntity() throws SQLException {
+        QueryStatistics statistics = new QueryStatistics();
+        simpleDb.addInterceptor(statistics);
+        try {
+            Sql sql = simpleDb.genSql().track();
+            sql.append("SELECT * FROM article WHERE id = ?", 1);
+            Article article = sql.selectRows(Article.class).get(0);
+
+            // 바뀐 게 없으면 쿼리를 보내지 않는다.
+            assertThat(simpleDb.save(article)).isZero();
+
+            article.setTitle("제목 수정");
+            assertThat(simpleDb.save(article)).isEqualTo(1);
+            assertThat(statistics.get("UPDATE article SET title = ?, version = ? WHERE id = ? AND version = ?").getCalls()).isEqualTo(1);
+            assertThat(article.getVersion()).isEqualTo(1L);
+
+            Article created = new Article();
+            created.setTitle("제목 new");
+            created.setBody("내용 new");
+            created.setIsBlind(false);
+            assertThat(simpleDb.save(created)).isEqualTo(1);
+            assertThat(created.getId()).isEqualTo(7L);
+            assertThat(created.getVersion()).isEqualTo(0L);
+
+            // track() 없이 읽은 엔티티는 스냅샷이 없어 모든 필드를 쓴다.
+            Article untracked = simpleDb.genSql()
+                    .append("SELECT * FROM article WHERE id = ?", 2)
+                    .selectRows(Article.class).get(0);
+            assertThat(simpleDb.save(untracked)).isEqualTo(1);
+        } finally {
+            simpleDb.removeInterceptor(statistics);
+        }
+
+        Sql sql = simpleDb.genSql();
+        sql.append("SELECT title FROM article WHERE id = ?", 1);
+        assertThat(sql.selectString()).isEqualTo("제목 수정");
+    }
+
+    @DisplayName("저장이 실패하면 0 대신 SQL 오류를 던지는 테스트")
+    @Test
+    public void saveFailure() throws SQLException {
+        // title 은 VARCHAR(100) 이라 넘치는 값은 strict 모드에서 거부된다.
+        Article created = new Article();
+        created.setTitle("제목".repeat(100));
+        created.setBody("내용 new");
+        assertThatThrownBy(() -> simpleDb.save(created)).isInstanceOf(SQLException.class);
+        assertThat(created.getId()).isNull();
+        // 들어가지 않은 엔티티에는 버전을 채우지 않는다.
+        assertThat(created.getVersion()).isNull();
+
+        Sql sql = simpleDb.genSql().track();
+        sql.append("SELECT * FROM article WHERE id = ?", 1);
+        Article article = sql.selectRows(Article.class).get(0);
+        article.setTitle("제목".repeat(100));
+        assertThatThrownBy(() -> simpleDb.save(article)).isInstanceOf(SQLException.class);
+        assertThat(article.getVersion()).isEqualTo(0L);
+
+        Sql countSql = simpleDb.genSql();
+        countSql.append("SELECT COUNT(*) FROM article");
+        assertThat(countSql.selectLong()).isEqualTo(6L);
+    }
+
+    @DisplayName("@Version 으로 먼저 고친 쪽이 이기는 테스트")
+    @Test
+    public void optimisticLock() throws SQLException {
+        Sql sql = simpleDb.genSql();
+        sql.append("SELECT * FROM article WHERE id = ?", 1);
+        Article mine = sql.selectRows(Article.class).get(0);
+
+        Sql otherSql = simpleDb.genSql();
+        otherSql.append("SELECT * FROM article WHERE id = ?", 1);
+        Article other = otherSql.selectRows(Article.class).get(0);
+
+        other.setTitle("다른 쪽 수정");
+        assertThat(simpleDb.save(other)).isEqualTo(1);
+
+        mine.setTitle("내 수정");
+        assertThatThrownBy(() -> simpleDb.save(mine))
+                .isInstanceOf(OptimisticLockException.class);
+
+        Sql checkSql = simpleDb.genSql();
+        checkSql.append("SELECT title FROM article WHERE id = ?", 1);
+        assertThat(checkSql.selectString()).isEqualTo("다른 쪽 수정");
+    }
+
+    @DisplayName("id 조회를 모아 IN 쿼리 한 번으로 읽는 테스트")
+    @Test
+    public void batchLoader() throws Exception {
+        QueryStatistics statistics = new QueryStatistics();
+        simpleDb.addInterceptor(statistics);
+        try {
+            BatchLoader<Article> loader = simpleDb.batchLoader(Article.class, "SELECT * FROM article WHERE id IN (?)", "id", null);
+            List<CompletableFuture<Article>> futures = IntStream.rangeClosed(1, 3)
+                    .mapToObj(loader::load)
+                    .toList();
+            CompletableFuture<Article> missing = loader.load(99L);
+            assertThat(loader.load(1L)).isSameAs(futures.get(0));
+
+            loader.dispatch();
+
+            assertThat(futures.stream().map(future -> future.join().getTitle()).toList())
+                    .containsExactly("제목1", "제목2", "제목3");
+            assertThat(missing.join()).isNull();
+            assertThat(statistics.get("SELECT * FROM article WHERE id IN (1, 2, 3, 99)").getCalls()).isEqualTo(1);
+
+            // window 가 지나면 dispatch 없이도 보낸다.
+            BatchLoader<Row> rows = simpleDb.batchLoader(Row.class, "SELECT * FROM article WHERE id IN (?)", "id", Duration.ofMillis(20));
+            assertThat(rows.loadMany(List.of(4, 5)).get(1, TimeUnit.SECONDS))
+                    .extracting(row -> row.get("title"))
+                    .containsExactly("제목4", "제목5");
+        } finally {
+            simpleDb.removeInterceptor(statistics);
+        }
+    }
+
+    @DisplayName("배치 조회가 실패하면 null 이 아니라 예외로 끝난다.")
+    @Test
+    public void batchLoaderFailure() {
+        BatchLoader<Row> loader = simpleDb.batchLoader(Row.class, "SELECT * FROM no_such_table WHERE id IN (?)", "id", null);
+        CompletableFuture<Row> future = loader.load(1L);
+
+        loader.dispatch();
+
+        assertThat(future.isCompletedExceptionally()).isTrue();
+        assertThatThrownBy(future::join).hasCauseInstanceOf(SQLException.class);
+    }
+
+    @DisplayName("없는 id 는 쿼리 없이 걸러내는 음성 캐시 테스트")
+    @Test
+    public void existenceFilter() throws SQLException {
+        ExistenceFilter filter = simpleDb.existenceFilter("article", "id");
+        assertThat(filter.mightExist(1L)).isTrue();
+        assertThat(filter.findRow(1).get("title")).isEqualTo("제목1");
+
+        long skipped = filter.getSkippedLookupCount();
+        assertThat(filter.findRow(1_000_000L)).isNull();
+        assertThat(filter.findRow(1_000_000L)).isNull();
+        assertThat(filter.getSkippedLookupCount()).isGreaterThan(skipped);
+
+        // insert() 로 생긴 id 는 바로 보인다.
+        Sql sql = simpleDb.genSql();
+        long id = sql.append("INSERT INTO article SET title = ?", "제목 new").insert();
+        assertThat(filter.mightExist(id)).isTrue();
+        assertThat(filter.findRow(id).get("title")).isEqualTo("제목 new");
+    }
+
+    @DisplayName("조회하는 사이에 생긴 키와 트랜잭션 안에서 넣은 키는 없는 키로 남지 않는다.")
+    @Test
+    public void existenceFilterRace() throws SQLException {
+        ExistenceFilter filter = simpleDb.existenceFilter("article", "id");
+
+        // 조회를 시작한 뒤 insert 가 끝나고, 조회가 없다는 결과를 늦게 남기려는 경우
+        long before = filter.getInsertCount();
+        long id = simpleDb.genSql().append("INSERT INTO article SET title = ?", "제목 race").insert();
+        filter.recordMiss(id, before);
+        assertThat(filter.mightExist(id)).isTrue();
+        assertThat(filter.findRow(id).get("title")).isEqualTo("제목 race");
+
+        // 트랜잭션 안의 insert 는 커밋할 때 반영된다.
+        Connection conn = simpleDb.getConnection();
+        long pendingId;
+        try {
+            simpleDb.startTransaction(conn);
+            pendingId = simpleDb.genSql().append("INSERT INTO article SET title = ?", "제목 tx").insert();
+            // 자기 트랜잭션에서는 커밋 전에도 보인다.
+            assertThat(filter.findRow(pendingId).get("title")).isEqualTo("제목 tx");
+
+            // 다른 쓰레드가 커밋 전에 조회해서 없다고 남긴 경우
+            filter.recordMiss(pendingId, filter.getInsertCount());
+            simpleDb.commitTransaction(conn);
+        } finally {
+            simpleDb.endTransaction(conn);
+            simpleDb.releaseConnection(conn);
+        }
+        assertThat(filter.mightExist(pendingId)).isTrue();
+        assertThat(filter.findRow(pendingId).get("title")).isEqualTo("제목 tx");
+    }
+
     @DisplayName("파라미터 바인딩 테스트")
     @Test
     public void selectBind() throws SQLException {
@@ -275,9 +811,13 @@ class SimpleDbTest {
             System.out.println(sql.getSql());
         }
 
-        long count = sql.selectLong(conn);
+        try {
+            long count = sql.selectLong(conn);
 
-        assertThat(count).isEqualTo(3);
+            assertThat(count).isEqualTo(3);
+        } finally {
+            simpleDb.releaseConnection(conn);
+        }
     }
 
     @DisplayName("정렬 바인딩 테스트")
@@ -414,6 +954,37 @@ class SimpleDbTest {
         assertThat(originalData).isEqualTo(afterRollbackData);
     }
 
+    @DisplayName("트랜잭션 안에서 실행한 쿼리는 커넥션을 풀에 먼저 돌려주지 않는 테스트")
+    @Test
+    public void transactionKeepsConnection() throws SQLException {
+        int available = simpleDb.getAvailableConnectionCount();
+
+        simpleDb.withConnection(() -> {
+            Connection conn = simpleDb.getConnection();
+            try {
+                simpleDb.startTransaction(conn);
+
+                Sql insertSql = simpleDb.genSql();
+                insertSql.append("INSERT INTO article")
+                        .append("SET createdDate = NOW()")
+                        .append(", modifiedDate = NOW()")
+                        .append(", title = ?", "제목 rollback")
+                        .append(", body = ?", "내용 rollback");
+                insertSql.insert();
+
+                assertThat(simpleDb.getAvailableConnectionCount()).isEqualTo(available - 1);
+                simpleDb.rollbackTransaction(conn);
+            } finally {
+                simpleDb.endTransaction(conn);
+                simpleDb.releaseConnection(conn);
+            }
+            return null;
+        });
+
+        assertThat(simpleDb.getAvailableConnectionCount()).isEqualTo(available);
+        assertThat(simpleDb.genSql().append("SELECT COUNT(*) FROM article WHERE title = ?", "제목 rollback").selectLong()).isZero();
+    }
+
 
 }
 
@@ -0,0 +1,129 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("동시 읽기 합치기 테스트")
+class SingleFlightTest {
+
+    @DisplayName("같은 키로 동시에 들어온 호출은 한 번만 실행하고 같은 결과를 받는다.")
+    @Test
+    public void coalesce() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> singleFlight.run("article:1", null, () -> {
+                executions.incrementAndGet();
+                await(release);
+                return "제목1";
+            })));
+        }
+        while (singleFlight.getCoalescedCount() < 7) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(1, TimeUnit.SECONDS)).isEqualTo("제목1");
+        }
+        assertThat(executions.get()).isEqualTo(1);
+
+        // 끝난 뒤의 호출은 다시 실행한다.
+        assertThat(singleFlight.run("article:1", null, () -> "제목1 수정")).isEqualTo("제목1 수정");
+        executor.shutdown();
+    }
+
+    @DisplayName("기다리는 쪽은 자기 데드라인이 지나면 먼저 포기하고, 실패는 함께 받는다.")
+    @Test
+    public void deadlineAndFailure() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Object> leader = executor.submit(() -> singleFlight.run("article:2", null, () -> {
+            started.countDown();
+            await(release);
+            throw new SQLException("실패");
+        }));
+        started.await();
+
+        assertThatThrownBy(() -> singleFlight.run("article:2", Deadline.after(Duration.ofMillis(50)), () -> "실행되면 안 됨"))
+                .isInstanceOf(SQLTimeoutException.class);
+
+        Future<Object> follower = Executors.newSingleThreadExecutor().submit(() -> {
+            try {
+                return singleFlight.run("article:2", null, () -> "실행되면 안 됨");
+            } catch (SQLException e) {
+                return e;
+            }
+        });
+        while (singleFlight.getCoalescedCount() < 2) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        assertThat(follower.get(1, TimeUnit.SECONDS)).isInstanceOf(SQLException.class);
+        executor.shutdown();
+    }
+
+    @DisplayName("리더가 타임아웃으로 끝나면 기다리던 쪽도 타임아웃으로 받는다.")
+    @Test
+    public void followerSeesTimeout() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.submit(() -> singleFlight.run("article:3", null, () -> {
+            started.countDown();
+            await(release);
+            throw new SQLTimeoutException("시간 초과");
+        }));
+        started.await();
+
+        Future<Object> follower = executor.submit(() -> {
+            try {
+                return singleFlight.run("article:3", null, () -> "실행되면 안 됨");
+            } catch (SQLException e) {
+                return e;
+            }
+        });
+        while (singleFlight.getCoalescedCount() < 1) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        Object failure = follower.get(1, TimeUnit.SECONDS);
+        assertThat(failure).isInstanceOf(SQLTimeoutException.class);
+        assertThat(((SQLException) failure).getCause()).isInstanceOf(SQLTimeoutException.class);
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) throws SQLException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new SQLException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("느린 쿼리 로그 테스트")
+class SlowQueryLogTest {
+
+    @DisplayName("출력 쓰레드는 처음 느린 쿼리가 들어올 때 시작하고, 잠든 뒤에 들어온 항목도 쓴다.")
+    @Test
+    public void lazyWriter() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SlowQueryLog slowQueryLog = new SlowQueryLog(null, Duration.ofMillis(1), new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        slowQueryLog.setExplainInterval(Duration.ofMillis(-1));
+
+        // threshold 아래의 쿼리는 쓰레드를 시작하지 않는다.
+        slowQueryLog.afterExecute(new StatementContext("SELECT 1", new Object[0]), 1_000);
+        assertThat(slowQueryLog.isWriterStarted()).isFalse();
+
+        slowQueryLog.afterExecute(new StatementContext("SELECT 2", new Object[0]), 2_000_000);
+        assertThat(slowQueryLog.isWriterStarted()).isTrue();
+        awaitLines(bytes, 1);
+
+        Thread.sleep(50); // 큐가 비어 writer 가 잠든다.
+        slowQueryLog.afterExecute(new StatementContext("SELECT 3", new Object[0]), 2_000_000);
+        awaitLines(bytes, 2);
+
+        slowQueryLog.close();
+        assertThat(slowQueryLog.getDroppedCount()).isZero();
+    }
+
+    @DisplayName("한 번도 쓰지 않고 닫으면 쓰레드를 시작하지 않고, 닫힌 뒤의 항목은 버린다.")
+    @Test
+    public void closeBeforeStart() throws Exception {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(null, Duration.ZERO, new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        slowQueryLog.close();
+
+        slowQueryLog.afterExecute(new StatementContext("SELECT 1", new Object[0]), 1_000);
+        assertThat(slowQueryLog.getDroppedCount()).isEqualTo(1);
+        assertThat(slowQueryLog.isWriterStarted()).isFalse();
+    }
+
+    private static void awaitLines(ByteArrayOutputStream bytes, int count) throws InterruptedException {
+        for (int i = 0; i < 500 && countLines(bytes) < count; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(countLines(bytes)).isEqualTo(count);
+    }
+
+    private static int countLines(ByteArrayOutputStream bytes) {
+        return bytes.toString(StandardCharsets.UTF_8).split("\\[slow query]", -1).length - 1;
+    }
+}
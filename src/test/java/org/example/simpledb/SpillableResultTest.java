@@ -0,0 +1,72 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("임시 파일로 넘기는 결과 테스트")
+class SpillableResultTest {
+
+    private static final String[] NAMES = {"id", "title"};
+    private static final int[] TYPES = {Types.BIGINT, Types.VARCHAR};
+
+    private static ResultSet rows(int count, int bigRowIndex) {
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new Object[]{(long) i, i == bigRowIndex ? "가".repeat(500_000) : "제목" + i};
+        }
+        return FakeResultSet.of(NAMES, TYPES, rows);
+    }
+
+    @DisplayName("한도 안이면 메모리에 둔다.")
+    @Test
+    public void underThreshold() throws SQLException {
+        try (SpillableResult result = SpillableResult.read(rows(100, -1), 1_000, 1 << 20)) {
+            assertThat(result.isSpilled()).isFalse();
+            assertThat(result.size()).isEqualTo(100);
+            assertThat(result.getString(99, 1)).isEqualTo("제목99");
+        }
+    }
+
+    @DisplayName("행 수 한도를 넘으면 파일로 넘기고, 앞서 쌓은 행도 그대로 읽힌다. close 하면 파일을 지운다.")
+    @Test
+    public void spillByRows() throws SQLException {
+        SpillableResult result = SpillableResult.read(rows(5_000, 3_000), 1_000, Long.MAX_VALUE);
+        Path file = result.getFile();
+
+        assertThat(result.isSpilled()).isTrue();
+        assertThat(Files.exists(file)).isTrue();
+        assertThat(result.size()).isEqualTo(5_000);
+        assertThat(result.getString(0, 1)).isEqualTo("제목0");
+        assertThat(result.getString(999, 1)).isEqualTo("제목999");
+        assertThat(result.getString(3_000, 1)).isEqualTo("가".repeat(500_000));
+        assertThat(result.getLong(4_999, 0)).isEqualTo(4_999L);
+
+        // 여러 번 다시 읽을 수 있다.
+        List<Object> ids = result.rows().map(row -> row.get("id")).collect(Collectors.toList());
+        assertThat(ids).hasSize(5_000);
+        assertThat(result.rows().count()).isEqualTo(5_000L);
+
+        result.close();
+        assertThat(Files.exists(file)).isFalse();
+    }
+
+    @DisplayName("바이트 한도를 넘어도 파일로 넘긴다.")
+    @Test
+    public void spillByBytes() throws SQLException {
+        try (SpillableResult result = SpillableResult.read(rows(10, 5), Long.MAX_VALUE, 1 << 20)) {
+            assertThat(result.isSpilled()).isTrue();
+            assertThat(result.getString(5, 1)).isEqualTo("가".repeat(500_000));
+            assertThat(result.getString(9, 1)).isEqualTo("제목9");
+        }
+    }
+}
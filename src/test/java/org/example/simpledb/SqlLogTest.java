@@ -0,0 +1,131 @@
+package org.example.simpledb;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SQL 로그 링 버퍼 테스트")
+class SqlLogTest {
+
+    @DisplayName("여러 쓰레드가 넣은 이벤트를 빠짐없이 쓰고, 쓰레드 안에서는 순서를 지킨다.")
+    @Test
+    public void concurrentProducers() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SqlLog sqlLog = new SqlLog(new PrintStream(bytes, true, StandardCharsets.UTF_8), 64);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int no = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    StatementContext context = new StatementContext("SELECT " + no + ", " + i, new Object[]{i});
+                    context.setRowCount(1);
+                    // 가득 차면 버려지므로 들어갈 때까지 다시 넣는다.
+                    while (!sqlLog.offer(new SqlLog.Event("sql", context.getSql(), context.getParameters(), 1, 1_000, 1, null))) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sqlLog.close();
+
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines.length).isEqualTo(4_000);
+        assertThat(sqlLog.getWrittenCount()).isEqualTo(4_000);
+
+        int[] next = new int[4];
+        for (String line : lines) {
+            String sql = line.substring(line.indexOf("SELECT ") + "SELECT ".length(), line.indexOf(" parameters"));
+            int no = Integer.parseInt(sql.substring(0, sql.indexOf(',')));
+            int i = Integer.parseInt(sql.substring(sql.indexOf(' ') + 1));
+            assertThat(i).isEqualTo(next[no]++);
+        }
+    }
+
+    @DisplayName("writer 가 밀리면 호출 쓰레드는 기다리지 않고 버린 개수만 센다.")
+    @Test
+    public void overflowIsCounted() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OutputStream blocking = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        SqlLog sqlLog = new SqlLog(new PrintStream(blocking, true, StandardCharsets.UTF_8), 4);
+
+        sqlLog.message("첫 줄");
+        writing.await(); // writer 가 첫 줄을 쓰다 멈췄다.
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(sqlLog.offer(new SqlLog.Event("info", "줄 " + i, null, 0, -1, -1, null))).isTrue();
+        }
+        assertThat(sqlLog.offer(new SqlLog.Event("info", "넘침", null, 0, -1, -1, null))).isFalse();
+        assertThat(sqlLog.getDroppedCount()).isEqualTo(1);
+
+        release.countDown();
+        sqlLog.close();
+        assertThat(sqlLog.getWrittenCount()).isEqualTo(5);
+    }
+
+    @DisplayName("writer 는 첫 이벤트에 시작하고, 잠든 뒤 들어온 이벤트에 깨어난다.")
+    @Test
+    public void lazyWriter() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SqlLog sqlLog = new SqlLog(new PrintStream(bytes, true, StandardCharsets.UTF_8), 4);
+        assertThat(sqlLog.isWriterStarted()).isFalse();
+
+        sqlLog.message("첫 줄");
+        assertThat(sqlLog.isWriterStarted()).isTrue();
+        awaitWritten(sqlLog, 1);
+
+        Thread.sleep(50); // 버퍼가 비어 writer 가 잠든다.
+        sqlLog.message("둘째 줄");
+        awaitWritten(sqlLog, 2);
+
+        sqlLog.close();
+        assertThat(bytes.toString(StandardCharsets.UTF_8).split("\n").length).isEqualTo(2);
+    }
+
+    @DisplayName("닫은 뒤 넣은 이벤트는 버린 개수로 센다.")
+    @Test
+    public void offerAfterClose() throws Exception {
+        SqlLog sqlLog = new SqlLog(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8), 4);
+        sqlLog.close();
+
+        assertThat(sqlLog.offer(new SqlLog.Event("info", "늦은 줄", null, 0, -1, -1, null))).isFalse();
+        assertThat(sqlLog.getDroppedCount()).isEqualTo(1);
+        assertThat(sqlLog.isWriterStarted()).isFalse();
+    }
+
+    private static void awaitWritten(SqlLog sqlLog, long count) throws InterruptedException {
+        for (int i = 0; i < 500 && sqlLog.getWrittenCount() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(sqlLog.getWrittenCount()).isEqualTo(count);
+    }
+}